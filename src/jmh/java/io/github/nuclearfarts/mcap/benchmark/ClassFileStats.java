@@ -0,0 +1,85 @@
+package io.github.nuclearfarts.mcap.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * Bytecode size of a class file: its total length and the code length of its largest method, which is what decides
+ * whether the JIT will compile (8000 bytes) or inline (325 bytes) it. Only reads as much of the format as needed.
+ */
+final class ClassFileStats {
+	final int classBytes;
+	final int largestMethodBytes;
+	
+	private ClassFileStats(int classBytes, int largestMethodBytes) {
+		this.classBytes = classBytes;
+		this.largestMethodBytes = largestMethodBytes;
+	}
+	
+	static ClassFileStats of(byte[] bytes) {
+		try(DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+			if(in.readInt() != 0xCAFEBABE) {
+				throw new IllegalArgumentException("Not a class file");
+			}
+			in.readUnsignedShort();
+			in.readUnsignedShort();
+			int poolSize = in.readUnsignedShort();
+			String[] utf8 = new String[poolSize];
+			for(int i = 1; i < poolSize; i++) {
+				int tag = in.readUnsignedByte();
+				switch(tag) {
+				case 1: utf8[i] = in.readUTF(); break;
+				case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18: in.readInt(); break;
+				case 5: case 6: in.readLong(); i++; break;
+				case 7: case 8: case 16: case 19: case 20: in.readUnsignedShort(); break;
+				case 15: in.readUnsignedByte(); in.readUnsignedShort(); break;
+				default: throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+				}
+			}
+			in.readUnsignedShort();
+			in.readUnsignedShort();
+			in.readUnsignedShort();
+			skip(in, in.readUnsignedShort() * 2);
+			int fields = in.readUnsignedShort();
+			for(int i = 0; i < fields; i++) {
+				skip(in, 6);
+				skipAttributes(in);
+			}
+			int largest = 0;
+			int methods = in.readUnsignedShort();
+			for(int i = 0; i < methods; i++) {
+				skip(in, 6);
+				int attributes = in.readUnsignedShort();
+				for(int a = 0; a < attributes; a++) {
+					String attribute = utf8[in.readUnsignedShort()];
+					int length = in.readInt();
+					if("Code".equals(attribute)) {
+						skip(in, 4);
+						largest = Math.max(largest, in.readInt());
+						skip(in, length - 8);
+					} else {
+						skip(in, length);
+					}
+				}
+			}
+			return new ClassFileStats(bytes.length, largest);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Truncated class file", e);
+		}
+	}
+	
+	private static void skipAttributes(DataInputStream in) throws IOException {
+		int attributes = in.readUnsignedShort();
+		for(int i = 0; i < attributes; i++) {
+			in.readUnsignedShort();
+			skip(in, in.readInt());
+		}
+	}
+	
+	private static void skip(DataInputStream in, int n) throws IOException {
+		if(in.skipBytes(n) != n) {
+			throw new IOException("Unexpected end of class file");
+		}
+	}
+}
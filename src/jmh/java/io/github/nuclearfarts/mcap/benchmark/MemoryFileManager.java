@@ -0,0 +1,83 @@
+package io.github.nuclearfarts.mcap.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+/**
+ * Keeps every compiler and processor output in memory, so benchmarks measure the work rather than the disk.
+ */
+final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+	final Map<String, MemoryFile> outputs = new TreeMap<>();
+	
+	MemoryFileManager(StandardJavaFileManager fileManager) {
+		super(fileManager);
+	}
+	
+	@Override
+	public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+		return output(location.getName() + "/" + className.replace('.', '/') + kind.extension, kind);
+	}
+	
+	@Override
+	public FileObject getFileForOutput(Location location, String packageName, String relativeName, FileObject sibling) {
+		return output(location.getName() + "/" + (packageName.isEmpty() ? "" : packageName.replace('.', '/') + "/") + relativeName, JavaFileObject.Kind.OTHER);
+	}
+	
+	@Override
+	public boolean isSameFile(FileObject a, FileObject b) {
+		if(a instanceof MemoryFile || b instanceof MemoryFile) {
+			return a.toUri().equals(b.toUri());
+		}
+		return super.isSameFile(a, b);
+	}
+	
+	private MemoryFile output(String path, JavaFileObject.Kind kind) {
+		MemoryFile file = new MemoryFile(URI.create("mem:///" + path), kind);
+		outputs.put(path, file);
+		return file;
+	}
+	
+	long totalBytes() {
+		long total = 0;
+		for(MemoryFile f : outputs.values()) {
+			total += f.bytes.size();
+		}
+		return total;
+	}
+	
+	static final class MemoryFile extends SimpleJavaFileObject {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		
+		MemoryFile(URI uri, Kind kind) {
+			super(uri, kind);
+		}
+		
+		@Override
+		public OutputStream openOutputStream() {
+			bytes.reset();
+			return bytes;
+		}
+		
+		@Override
+		public InputStream openInputStream() {
+			return new ByteArrayInputStream(bytes.toByteArray());
+		}
+		
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package io.github.nuclearfarts.mcap.benchmark;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.JavaFileObject;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.squareup.javapoet.TypeName;
+
+import io.github.nuclearfarts.mcap.annotation.RegisterBlock;
+import io.github.nuclearfarts.mcap.annotation.RegisterItem;
+import io.github.nuclearfarts.mcap.annotation.RegistryContainer;
+import io.github.nuclearfarts.mcap.processor.EntryHolder;
+import io.github.nuclearfarts.mcap.processor.FieldRefParser;
+import io.github.nuclearfarts.mcap.processor.ParsedBlock;
+import io.github.nuclearfarts.mcap.processor.ParsedItem;
+import io.github.nuclearfarts.mcap.processor.ParsedRegistryContainer;
+import io.github.nuclearfarts.mcap.processor.ResourceJob;
+import io.github.nuclearfarts.mcap.processor.TemplateLoader;
+
+/**
+ * Retained heap of the parsed model per entry. A minimal processor parses every field of the synthetic containers the
+ * way the real one does, collects their resource jobs, and keeps both alive while the used heap is compared across
+ * full GCs, before and after parsing. Containers are parsed before the first measurement, so only per-entry state is
+ * counted. The figure is the <code>bytesPerEntry</code> secondary result; run the benchmark on both sides of a model
+ * change to compare.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ModelFootprintBenchmark {
+	@Param({"10000", "50000"})
+	public int fields;
+	
+	private List<JavaFileObject> sources;
+	private Path buildDir;
+	
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Footprint {
+		public long bytesPerEntry;
+	}
+	
+	@Setup
+	public void setup() throws IOException {
+		buildDir = SyntheticSources.createBuildDir();
+		sources = new ArrayList<>(SyntheticSources.minecraftStubs());
+		sources.addAll(SyntheticSources.containers(fields, true));
+	}
+	
+	@Benchmark
+	public List<Object> retained(Footprint footprint) {
+		ParsingProcessor processor = new ParsingProcessor(buildDir);
+		SyntheticSources.compile(sources, buildDir, processor);
+		footprint.bytesPerEntry = processor.bytesPerEntry;
+		return processor.entries;
+	}
+	
+	private static long usedHeap(MemoryMXBean memory) {
+		for(int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+	
+	private static class ParsingProcessor extends AbstractProcessor {
+		private final Path buildDir;
+		private final List<Object> entries = new ArrayList<>();
+		private final List<ResourceJob> jobs = new ArrayList<>();
+		private long bytesPerEntry;
+		
+		private ParsingProcessor(Path buildDir) {
+			this.buildDir = buildDir;
+		}
+		
+		@Override
+		public Set<String> getSupportedAnnotationTypes() {
+			return Collections.singleton(RegistryContainer.class.getCanonicalName());
+		}
+		
+		@Override
+		public SourceVersion getSupportedSourceVersion() {
+			return SourceVersion.latestSupported();
+		}
+		
+		@Override
+		public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+			if(roundEnv.processingOver()) {
+				return false;
+			}
+			FieldRefParser fieldRefParser = new FieldRefParser(processingEnv.getElementUtils(), processingEnv.getTypeUtils());
+			TemplateLoader loader = new TemplateLoader(buildDir.resolve("templates"));
+			List<TypeElement> owners = new ArrayList<>();
+			List<ParsedRegistryContainer> containers = new ArrayList<>();
+			for(Element owner : roundEnv.getElementsAnnotatedWith(RegistryContainer.class)) {
+				owners.add((TypeElement) owner);
+				containers.add(new ParsedRegistryContainer(owner.getAnnotation(RegistryContainer.class), loader, TypeName.get(owner.asType()), this::fail, fieldRefParser));
+			}
+			MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+			long before = usedHeap(memory);
+			for(int i = 0; i < owners.size(); i++) {
+				for(Element ele : owners.get(i).getEnclosedElements()) {
+					if(ele.getKind() != ElementKind.FIELD) {
+						continue;
+					}
+					if(ele.getAnnotation(RegisterBlock.class) != null) {
+						ParsedBlock block = new ParsedBlock(ele, EntryHolder.FIELD, containers.get(i), this::fail);
+						block.collectJobs(jobs);
+						entries.add(block);
+					} else if(ele.getAnnotation(RegisterItem.class) != null) {
+						ParsedItem item = new ParsedItem(ele, EntryHolder.FIELD, containers.get(i), this::fail);
+						item.collectJobs(jobs);
+						entries.add(item);
+					}
+				}
+			}
+			bytesPerEntry = (usedHeap(memory) - before) / Math.max(1, entries.size());
+			return true;
+		}
+		
+		private void fail(String error) {
+			throw new IllegalStateException(error);
+		}
+	}
+}
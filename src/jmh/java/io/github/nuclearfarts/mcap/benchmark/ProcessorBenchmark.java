@@ -0,0 +1,117 @@
+package io.github.nuclearfarts.mcap.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.nuclearfarts.mcap.processor.ContainerModel;
+import io.github.nuclearfarts.mcap.processor.LoadedTemplate;
+import io.github.nuclearfarts.mcap.processor.ResourceJob;
+import io.github.nuclearfarts.mcap.processor.TemplateLoader;
+
+/**
+ * End-to-end javac runs over synthetic containers. Phases are separated by difference: <code>baseline</code> is javac
+ * alone, <code>parse</code> adds the processor on containers that generate no assets (scanning, parsing and registrar
+ * emission), and <code>generate</code> adds rendering and writing of every builtin template plus a custom one.
+ * <code>render</code> and <code>write</code> split that last part without javac: the same containers' assets, taken
+ * from the models the processor persists, rendered to memory and written through a fresh in-memory file manager. Run
+ * with the gc profiler for allocation figures.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ProcessorBenchmark {
+	@Param({"10", "100", "1000", "10000", "100000"})
+	public int fields;
+	
+	private List<JavaFileObject> bareSources;
+	private List<JavaFileObject> assetSources;
+	private Path buildDir;
+	private List<ResourceJob> jobs;
+	private String[] rendered;
+	private final StringBuilder buffer = new StringBuilder(1024);
+	
+	@Setup
+	public void setup() throws IOException {
+		buildDir = SyntheticSources.createBuildDir();
+		bareSources = new ArrayList<>(SyntheticSources.minecraftStubs());
+		bareSources.addAll(SyntheticSources.containers(fields, false));
+		assetSources = new ArrayList<>(SyntheticSources.minecraftStubs());
+		assetSources.addAll(SyntheticSources.containers(fields, true));
+		
+		SyntheticSources.compile(assetSources, buildDir, true, "-Amcap.persistModel=true");
+		TemplateLoader loader = new TemplateLoader(buildDir.resolve("templates"));
+		jobs = new ArrayList<>();
+		for(int c = 0; c < SyntheticSources.containerCount(fields); c++) {
+			ContainerModel model = ContainerModel.read(ContainerModel.pathOf(buildDir.resolve("mcap").resolve("models"), SyntheticSources.PACKAGE + ".Content" + c));
+			for(ContainerModel.Entry entry : model.getEntries()) {
+				String source = entry.getTemplateSource();
+				LoadedTemplate template = source.startsWith("builtin:") ? TemplateLoader.loadBuiltin(source.substring("builtin:".length())) : loader.load(source);
+				jobs.add(entry.toJob(template, model.getModId()));
+			}
+		}
+		rendered = new String[jobs.size()];
+		for(int i = 0; i < rendered.length; i++) {
+			rendered[i] = jobs.get(i).render();
+		}
+	}
+	
+	@Benchmark
+	public MemoryFileManager baseline() {
+		return SyntheticSources.compile(assetSources, buildDir, false);
+	}
+	
+	@Benchmark
+	public MemoryFileManager parse() {
+		return SyntheticSources.compile(bareSources, buildDir, true);
+	}
+	
+	@Benchmark
+	public MemoryFileManager generate() {
+		return SyntheticSources.compile(assetSources, buildDir, true);
+	}
+	
+	@Benchmark
+	public int render() {
+		int length = 0;
+		for(ResourceJob job : jobs) {
+			buffer.setLength(0);
+			job.renderTo(buffer);
+			length += buffer.length();
+		}
+		return length;
+	}
+	
+	@Benchmark
+	public MemoryFileManager write() throws IOException {
+		MemoryFileManager fm = SyntheticSources.fileManager();
+		for(int i = 0; i < rendered.length; i++) {
+			ResourceJob job = jobs.get(i);
+			try(Writer w = fm.getFileForOutput(StandardLocation.CLASS_OUTPUT, job.getPackage(), job.getFileName(), null).openWriter()) {
+				w.append(rendered[i]);
+			}
+		}
+		return fm;
+	}
+}
@@ -0,0 +1,168 @@
+package io.github.nuclearfarts.mcap.benchmark;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.JavaFileObject;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runtime cost of the generated registrars against the stub registries. The synthetic containers are compiled with the
+ * processor once per trial, and their registrars' <code>register()</code> is then run from the compiled classes.
+ * <p>
+ * <code>cold</code> loads the classes into a fresh class loader per invocation, so each run includes initializing the
+ * registrar, loading and initializing the owner and any shards, and executing all of it interpreted, as at mod init.
+ * <code>warm</code> keeps calling the same registrars until the JIT is done with them. Containers whose entries fit
+ * {@link io.github.nuclearfarts.mcap.processor.RegistrarGenerator#INLINE_BYTECODE_BUDGET} get the inline shape, larger
+ * ones the sharded one; <code>shape</code> picks string ids, identifier constants or timed
+ * registration. Run with the gc profiler for allocations. The bytecode of each shape is
+ * reported as the <code>registrarBytes</code> and <code>largestMethodBytes</code> secondary results.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class RegistrarBenchmark {
+	static final String CLASS_OUTPUT = "CLASS_OUTPUT/";
+	
+	@Param({"100", "500", "1000", "10000"})
+	public int fields;
+	
+	@Param({"false", "true"})
+	public boolean callbacks;
+	
+	@Param({"strings", "constants", "metrics"})
+	public String shape;
+	
+	private Map<String, MemoryFileManager.MemoryFile> classes;
+	private List<String> registrars;
+	private List<Method> warmRegistrars;
+	private int registrarBytes;
+	private int largestMethodBytes;
+	
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Bytecode {
+		public long registrarBytes;
+		public long largestMethodBytes;
+	}
+	
+	@State(Scope.Thread)
+	public static class ColdLoader {
+		private List<Method> registrars;
+		
+		@Setup(Level.Invocation)
+		public void load(RegistrarBenchmark benchmark) throws ReflectiveOperationException {
+			registrars = benchmark.registerMethods(new MemoryClassLoader(benchmark.classes));
+		}
+	}
+	
+	@Setup
+	public void setup() throws IOException, ReflectiveOperationException {
+		Path buildDir = SyntheticSources.createBuildDir();
+		List<JavaFileObject> sources = new ArrayList<>(SyntheticSources.minecraftStubs());
+		sources.addAll(SyntheticSources.containers(fields, true, callbacks));
+		List<String> options = new ArrayList<>();
+		if("constants".equals(shape)) {
+			options.add("-Amcap.identifierConstants=true");
+		} else if("metrics".equals(shape)) {
+			options.add("-Amcap.metrics=true");
+		}
+		classes = SyntheticSources.compile(sources, buildDir, true, options.toArray(new String[0])).outputs;
+		
+		registrars = new ArrayList<>();
+		for(int c = 0; c < SyntheticSources.containerCount(fields); c++) {
+			registrars.add(SyntheticSources.PACKAGE + ".Content" + c + "Registrar");
+		}
+		for(Map.Entry<String, MemoryFileManager.MemoryFile> e : classes.entrySet()) {
+			String path = e.getKey();
+			if(path.startsWith(CLASS_OUTPUT) && path.contains("Registrar") && path.endsWith(".class")) {
+				ClassFileStats stats = ClassFileStats.of(e.getValue().bytes.toByteArray());
+				registrarBytes += stats.classBytes;
+				largestMethodBytes = Math.max(largestMethodBytes, stats.largestMethodBytes);
+			}
+		}
+		warmRegistrars = registerMethods(new MemoryClassLoader(classes));
+	}
+	
+	private List<Method> registerMethods(ClassLoader loader) throws ReflectiveOperationException {
+		List<Method> methods = new ArrayList<>();
+		for(String registrar : registrars) {
+			methods.add(Class.forName(registrar, false, loader).getMethod("register"));
+		}
+		return methods;
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 5)
+	@Measurement(iterations = 30)
+	public void cold(ColdLoader loader, Bytecode bytecode) throws ReflectiveOperationException {
+		report(bytecode);
+		invoke(loader.registrars);
+	}
+	
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@Warmup(iterations = 5)
+	@Measurement(iterations = 5)
+	public void warm(Bytecode bytecode) throws ReflectiveOperationException {
+		report(bytecode);
+		invoke(warmRegistrars);
+	}
+	
+	private void report(Bytecode bytecode) {
+		bytecode.registrarBytes = registrarBytes;
+		bytecode.largestMethodBytes = largestMethodBytes;
+	}
+	
+	private static void invoke(List<Method> registrars) throws ReflectiveOperationException {
+		for(Method register : registrars) {
+			try {
+				register.invoke(null);
+			} catch (InvocationTargetException e) {
+				throw new IllegalStateException("Registrar failed", e.getCause());
+			}
+		}
+	}
+	
+	/**
+	 * Defines classes from the compiled outputs, isolated from the benchmark's own classpath.
+	 */
+	private static class MemoryClassLoader extends ClassLoader {
+		private final Map<String, MemoryFileManager.MemoryFile> classes;
+		
+		private MemoryClassLoader(Map<String, MemoryFileManager.MemoryFile> classes) {
+			super(ClassLoader.getSystemClassLoader().getParent());
+			this.classes = classes;
+		}
+		
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException {
+			MemoryFileManager.MemoryFile file = classes.get(CLASS_OUTPUT + name.replace('.', '/') + ".class");
+			if(file == null) {
+				throw new ClassNotFoundException(name);
+			}
+			byte[] bytes = file.bytes.toByteArray();
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+}
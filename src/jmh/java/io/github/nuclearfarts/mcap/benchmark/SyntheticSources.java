@@ -0,0 +1,203 @@
+package io.github.nuclearfarts.mcap.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import io.github.nuclearfarts.mcap.processor.Processor;
+
+/**
+ * Stub <code>net.minecraft</code> classes and synthetic <code>@RegistryContainer</code> sources for benchmarks, plus
+ * an in-process compile helper. Fields are spread over containers of at most {@link #FIELDS_PER_CONTAINER} so the
+ * owners' static initializers stay under the method size limit at any size.
+ */
+final class SyntheticSources {
+	static final String PACKAGE = "bench.content";
+	static final String MOD_ID = "bench";
+	static final int FIELDS_PER_CONTAINER = 1000;
+	static final String CUSTOM_TEMPLATE = "{\n\t\"parent\": \"%s\",\n\t\"textures\": {\n\t\t\"all\": \"${modid}:block/${id}\"\n\t}\n}";
+	
+	private static final JavaCompiler COMPILER = ToolProvider.getSystemJavaCompiler();
+	
+	private SyntheticSources() { }
+	
+	static List<JavaFileObject> minecraftStubs() {
+		List<JavaFileObject> stubs = new ArrayList<>();
+		stubs.add(source("net.minecraft.block.Block", "package net.minecraft.block;\n"
+				+ "public class Block { }\n"));
+		stubs.add(source("net.minecraft.item.ItemGroup", "package net.minecraft.item;\n"
+				+ "public class ItemGroup {\n"
+				+ "	public static final ItemGroup MISC = new ItemGroup();\n"
+				+ "}\n"));
+		stubs.add(source("net.minecraft.item.Item", "package net.minecraft.item;\n"
+				+ "public class Item {\n"
+				+ "	private final ItemGroup group;\n"
+				+ "	public Item(Settings settings) { this.group = settings.group; }\n"
+				+ "	public ItemGroup getGroup() { return group; }\n"
+				+ "	public static class Settings {\n"
+				+ "		private ItemGroup group;\n"
+				+ "		public Settings group(ItemGroup group) { this.group = group; return this; }\n"
+				+ "	}\n"
+				+ "}\n"));
+		stubs.add(source("net.minecraft.item.BlockItem", "package net.minecraft.item;\n"
+				+ "public class BlockItem extends Item {\n"
+				+ "	private final net.minecraft.block.Block block;\n"
+				+ "	public BlockItem(net.minecraft.block.Block block, Item.Settings settings) { super(settings); this.block = block; }\n"
+				+ "	public net.minecraft.block.Block getBlock() { return block; }\n"
+				+ "}\n"));
+		stubs.add(source("net.minecraft.util.Identifier", "package net.minecraft.util;\n"
+				+ "public class Identifier {\n"
+				+ "	private final String namespace, path;\n"
+				+ "	public Identifier(String namespace, String path) {\n"
+				+ "		for(int i = 0; i < namespace.length(); i++) { if(!valid(namespace.charAt(i), false)) throw new IllegalArgumentException(namespace); }\n"
+				+ "		for(int i = 0; i < path.length(); i++) { if(!valid(path.charAt(i), true)) throw new IllegalArgumentException(path); }\n"
+				+ "		this.namespace = namespace; this.path = path;\n"
+				+ "	}\n"
+				+ "	public String getNamespace() { return namespace; }\n"
+				+ "	public String getPath() { return path; }\n"
+				+ "	private static boolean valid(char c, boolean path) { return c == '_' || c == '-' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '.' || path && c == '/'; }\n"
+				+ "	@Override public boolean equals(Object o) { return o instanceof Identifier && ((Identifier) o).namespace.equals(namespace) && ((Identifier) o).path.equals(path); }\n"
+				+ "	@Override public int hashCode() { return 31 * namespace.hashCode() + path.hashCode(); }\n"
+				+ "	@Override public String toString() { return namespace + ':' + path; }\n"
+				+ "}\n"));
+		stubs.add(source("net.minecraft.util.registry.Registry", "package net.minecraft.util.registry;\n"
+				+ "public class Registry<T> {\n"
+				+ "	public static final Registry<net.minecraft.block.Block> BLOCK = new Registry<>();\n"
+				+ "	public static final Registry<net.minecraft.item.Item> ITEM = new Registry<>();\n"
+				+ "	private final java.util.Map<net.minecraft.util.Identifier, T> entries = new java.util.HashMap<>();\n"
+				+ "	public static <V, T extends V> T register(Registry<V> registry, net.minecraft.util.Identifier id, T entry) { registry.entries.put(id, entry); return entry; }\n"
+				+ "	public int size() { return entries.size(); }\n"
+				+ "	public void clear() { entries.clear(); }\n"
+				+ "}\n"));
+		return stubs;
+	}
+	
+	/**
+	 * @param assets whether the containers inherit builtin templates and use a custom template, or generate no assets
+	 */
+	static List<JavaFileObject> containers(int fields, boolean assets) {
+		return containers(fields, assets, false);
+	}
+	
+	/**
+	 * @param callbacks whether the containers register through block and item registry callbacks
+	 */
+	static List<JavaFileObject> containers(int fields, boolean assets, boolean callbacks) {
+		List<JavaFileObject> containers = new ArrayList<>();
+		for(int start = 0, c = 0; start < fields; start += FIELDS_PER_CONTAINER, c++) {
+			containers.add(container("Content" + c, c, Math.min(FIELDS_PER_CONTAINER, fields - start), assets, callbacks));
+		}
+		return containers;
+	}
+	
+	static int containerCount(int fields) {
+		return (fields + FIELDS_PER_CONTAINER - 1) / FIELDS_PER_CONTAINER;
+	}
+	
+	static JavaFileObject container(String name, int index, int fields, boolean assets, boolean callbacks) {
+		StringBuilder code = new StringBuilder();
+		code.append("package ").append(PACKAGE).append(";\n");
+		code.append("import net.minecraft.block.Block;\n");
+		code.append("import net.minecraft.item.Item;\n");
+		code.append("import net.minecraft.item.ItemGroup;\n");
+		code.append("import io.github.nuclearfarts.mcap.TemplateType;\n");
+		code.append("import io.github.nuclearfarts.mcap.annotation.*;\n");
+		if(assets) {
+			code.append("@RegistryContainer(value = \"").append(MOD_ID).append("\", block = \"basic\", blockState = \"basic\", item = \"basic\", loot = \"basic\", autoBlockItem = true, blockItem = \"block\",\n")
+					.append("		itemGroup = @FieldRef(clazz = ItemGroup.class, field = \"MISC\"),\n")
+					.append("		templates = @Template(name = \"custom\", file = \"custom.json\", type = TemplateType.BLOCK))\n");
+		} else {
+			code.append("@RegistryContainer(\"").append(MOD_ID).append("\")\n");
+		}
+		code.append("public class ").append(name).append(" {\n");
+		if(callbacks) {
+			code.append("	@BlockRegistryCallback\n")
+					.append("	static void onBlock(net.minecraft.util.Identifier id, Block block) { net.minecraft.util.registry.Registry.register(net.minecraft.util.registry.Registry.BLOCK, id, block); }\n")
+					.append("	@ItemRegistryCallback\n")
+					.append("	static void onItem(net.minecraft.util.Identifier id, Item item) { net.minecraft.util.registry.Registry.register(net.minecraft.util.registry.Registry.ITEM, id, item); }\n");
+		}
+		for(int i = 0; i < fields; i++) {
+			if(i % 2 == 0) {
+				if(assets && i % 10 == 0) {
+					code.append("	@RegisterBlock(value = \"block_").append(index).append('_').append(i).append("\", model = \"custom\", modelArgs = \"minecraft:block/cube_all\", loot = \"silk\", itemGroup = @FieldRef(clazz = ItemGroup.class, field = \"MISC\"))\n");
+				} else {
+					code.append("	@RegisterBlock(\"block_").append(index).append('_').append(i).append("\")\n");
+				}
+				code.append("	public static final Block BLOCK_").append(i).append(" = new Block();\n");
+			} else {
+				code.append("	@RegisterItem(\"item_").append(index).append('_').append(i).append("\")\n");
+				code.append("	public static final Item ITEM_").append(i).append(" = new Item(new Item.Settings());\n");
+			}
+		}
+		code.append("}\n");
+		return source(PACKAGE + "." + name, code.toString());
+	}
+	
+	static JavaFileObject source(String qualifiedName, String code) {
+		return new SimpleJavaFileObject(URI.create("string:///" + qualifiedName.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return code;
+			}
+		};
+	}
+	
+	/**
+	 * Creates a throwaway <code>buildDir</code> holding the custom template.
+	 */
+	static Path createBuildDir() throws IOException {
+		Path buildDir = Files.createTempDirectory("mcap-bench");
+		Files.createDirectories(buildDir.resolve("templates"));
+		Files.write(buildDir.resolve("templates").resolve("custom.json"), CUSTOM_TEMPLATE.getBytes(StandardCharsets.UTF_8));
+		return buildDir;
+	}
+	
+	/**
+	 * Compiles sources in memory, optionally running the processor, and returns the file manager holding the outputs.
+	 */
+	static MemoryFileManager compile(List<JavaFileObject> sources, Path buildDir, boolean processor, String... extraOptions) {
+		return compile(sources, buildDir, processor ? new Processor() : null, extraOptions);
+	}
+	
+	/**
+	 * An empty in-memory file manager like the one compilations write to.
+	 */
+	static MemoryFileManager fileManager() {
+		return new MemoryFileManager(COMPILER.getStandardFileManager(null, null, StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * Compiles sources in memory with the given processor, or none if it is null.
+	 */
+	static MemoryFileManager compile(List<JavaFileObject> sources, Path buildDir, javax.annotation.processing.Processor processor, String... extraOptions) {
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		StandardJavaFileManager std = COMPILER.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8);
+		MemoryFileManager fm = new MemoryFileManager(std);
+		List<String> options = new ArrayList<>(Arrays.asList("-classpath", System.getProperty("java.class.path"), "-AbuildDir=" + buildDir, "-nowarn"));
+		if(processor == null) {
+			options.add("-proc:none");
+		}
+		options.addAll(Arrays.asList(extraOptions));
+		JavaCompiler.CompilationTask task = COMPILER.getTask(null, fm, diagnostics, options, null, sources);
+		if(processor != null) {
+			task.setProcessors(Collections.singletonList(processor));
+		}
+		if(!task.call()) {
+			throw new IllegalStateException("Benchmark compilation failed: " + diagnostics.getDiagnostics());
+		}
+		return fm;
+	}
+}
@@ -0,0 +1,80 @@
+package io.github.nuclearfarts.mcap.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.nuclearfarts.mcap.processor.LoadedTemplate;
+import io.github.nuclearfarts.mcap.processor.TemplateLoader;
+
+/**
+ * Template parsing, rendering and custom template loading. <code>custom</code> is the template the synthetic
+ * containers load through <code>@Template</code>; the rest are the builtins.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TemplateBenchmark {
+	private static final String[] ARGS = {"minecraft:block/cube_all"};
+	
+	@Param({"itemmodel", "blockitem", "blockmodel", "blockstate", "loottable", "silktable", "custom"})
+	public String template;
+	
+	private String text;
+	private LoadedTemplate loaded;
+	private TemplateLoader loader;
+	private final StringBuilder buffer = new StringBuilder(1024);
+	private int counter;
+	
+	@Setup
+	public void setup() throws IOException {
+		Path buildDir = SyntheticSources.createBuildDir();
+		loader = new TemplateLoader(buildDir.resolve("templates"));
+		if("custom".equals(template)) {
+			text = SyntheticSources.CUSTOM_TEMPLATE;
+		} else {
+			try(BufferedReader r = new BufferedReader(new InputStreamReader(LoadedTemplate.class.getResourceAsStream("/templates/" + template + ".json"), StandardCharsets.UTF_8))) {
+				text = r.lines().collect(Collectors.joining("\n"));
+			}
+		}
+		loaded = new LoadedTemplate(text);
+		Files.write(buildDir.resolve("templates").resolve(template + ".json"), text.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	@Benchmark
+	public LoadedTemplate parse() {
+		return new LoadedTemplate(text);
+	}
+	
+	@Benchmark
+	public int render() {
+		buffer.setLength(0);
+		loaded.renderTo(buffer, SyntheticSources.MOD_ID, "block_" + (counter++ & 1023), ARGS);
+		return buffer.length();
+	}
+	
+	@Benchmark
+	public LoadedTemplate loadCached() throws IOException {
+		return loader.load(template + ".json");
+	}
+}
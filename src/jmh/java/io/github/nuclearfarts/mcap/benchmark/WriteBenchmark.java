@@ -0,0 +1,79 @@
+package io.github.nuclearfarts.mcap.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.github.nuclearfarts.mcap.processor.DirectResourceWriter;
+import io.github.nuclearfarts.mcap.processor.LoadedTemplate;
+import io.github.nuclearfarts.mcap.processor.ProcessorTemplateType;
+import io.github.nuclearfarts.mcap.processor.TemplateLoader;
+
+/**
+ * Writing rendered block models to disk, one file per entry like javac's Filer does, against the direct staged writer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WriteBenchmark {
+	@Param({"10", "100", "1000", "10000", "100000"})
+	public int files;
+	
+	private String[] contents;
+	private String pkg;
+	private Path outputDir;
+	
+	@Setup
+	public void setup() throws IOException {
+		LoadedTemplate template = TemplateLoader.loadBuiltin("blockmodel");
+		contents = new String[files];
+		for(int i = 0; i < files; i++) {
+			contents[i] = template.with(SyntheticSources.MOD_ID, "block_" + i, new String[0]);
+		}
+		pkg = ProcessorTemplateType.BLOCK.getPackage(SyntheticSources.MOD_ID);
+	}
+	
+	@Setup(Level.Iteration)
+	public void freshOutput() throws IOException {
+		outputDir = Files.createTempDirectory("mcap-bench-write").resolve("out");
+	}
+	
+	@Benchmark
+	public void perFile() throws IOException {
+		Path dir = outputDir.resolve(pkg.replace('.', '/'));
+		Files.createDirectories(dir);
+		for(int i = 0; i < files; i++) {
+			try(BufferedWriter w = Files.newBufferedWriter(dir.resolve("block_" + i + ".json"), StandardCharsets.UTF_8)) {
+				w.write(contents[i]);
+			}
+		}
+	}
+	
+	@Benchmark
+	public void direct() throws IOException {
+		DirectResourceWriter writer = new DirectResourceWriter(outputDir);
+		for(int i = 0; i < files; i++) {
+			writer.write(pkg, "block_" + i + ".json", contents[i]);
+		}
+		writer.commit();
+	}
+}
@@ -0,0 +1,14 @@
+package io.github.nuclearfarts.mcap;
+
+/**
+ * Element type of a generated data table.
+ */
+public enum DataType {
+	BOOLEAN,
+	BYTE,
+	SHORT,
+	INT,
+	LONG,
+	FLOAT,
+	DOUBLE;
+}
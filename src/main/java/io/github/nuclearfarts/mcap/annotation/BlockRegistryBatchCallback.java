@@ -0,0 +1,18 @@
+package io.github.nuclearfarts.mcap.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Receives all of a container's blocks in a single call once the registrar has collected them, instead of one
+ * {@link BlockRegistryCallback} call per block. The method takes <code>(Identifier[], Block[])</code> or
+ * <code>(List&lt;Identifier&gt;, List&lt;Block&gt;)</code>; the arrays are the registrar's own and the lists are
+ * immutable views, in declaration order with ids and blocks at the same index. The call happens before any item is
+ * registered, automatic block items included, so blocks still come first. A container can have either this or a
+ * per-entry block callback.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface BlockRegistryBatchCallback { }
@@ -0,0 +1,25 @@
+package io.github.nuclearfarts.mcap.annotation;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import io.github.nuclearfarts.mcap.DataType;
+
+/**
+ * A primitive array generated on the registrar, indexed by the ordinal of the container's blocks or items. Entries set
+ * their value with <code>data = "name=value"</code> on their register annotation; the rest get the default.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target({})
+public @interface DataTable {
+	/**
+	 * Name of the generated array field.
+	 */
+	String name();
+	DataType type();
+	/**
+	 * Value of entries that don't set one. Empty string means zero or false.
+	 */
+	String defaultValue() default "";
+}
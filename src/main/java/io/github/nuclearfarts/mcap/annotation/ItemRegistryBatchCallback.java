@@ -0,0 +1,18 @@
+package io.github.nuclearfarts.mcap.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Receives all of a container's items in a single call once the registrar has collected them, instead of one
+ * {@link ItemRegistryCallback} call per item. The method takes <code>(Identifier[], Item[])</code> or
+ * <code>(List&lt;Identifier&gt;, List&lt;Item&gt;)</code>; the arrays are the registrar's own and the lists are
+ * immutable views, in declaration order with ids and items at the same index. Automatic block items come first,
+ * and the call happens after the blocks have been registered. A container can have either this or a per-entry item
+ * callback.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface ItemRegistryBatchCallback { }
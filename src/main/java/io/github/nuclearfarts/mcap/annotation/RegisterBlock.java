@@ -7,8 +7,13 @@ import java.lang.annotation.Target;
 
 import io.github.nuclearfarts.mcap.TriState;
 
+/**
+ * Registers a static Block field. A static <code>Supplier</code> field or no-arg factory method is registered lazily
+ * instead: it is only invoked when the generated registrar registers, and the registrar gets a typed accessor of the
+ * same name for the created block.
+ */
 @Retention(RetentionPolicy.SOURCE)
-@Target(ElementType.FIELD)
+@Target({ElementType.FIELD, ElementType.METHOD})
 public @interface RegisterBlock {
 	/**
 	 * Block's string ID.
@@ -44,4 +49,9 @@ public @interface RegisterBlock {
 	 * Block item group.
 	 */
 	FieldRef itemGroup() default @FieldRef(clazz = Void.class, field = "#$%INHERIT");
+	
+	/**
+	 * Values for the container's block data tables, as <code>name=value</code>.
+	 */
+	String[] data() default {};
 }
@@ -5,8 +5,13 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+/**
+ * Registers a static Item field. A static <code>Supplier</code> field or no-arg factory method is registered lazily
+ * instead: it is only invoked when the generated registrar registers, and the registrar gets a typed accessor of the
+ * same name for the created item.
+ */
 @Retention(RetentionPolicy.SOURCE)
-@Target(ElementType.FIELD)
+@Target({ElementType.FIELD, ElementType.METHOD})
 public @interface RegisterItem {
 	/**
 	 * Item's string ID.
@@ -19,4 +24,9 @@ public @interface RegisterItem {
 	 */
 	String model() default "#$%INHERIT";
 	String[] modelArgs() default {};
+	
+	/**
+	 * Values for the container's item data tables, as <code>name=value</code>.
+	 */
+	String[] data() default {};
 }
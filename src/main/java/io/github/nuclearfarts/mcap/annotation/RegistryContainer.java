@@ -53,7 +53,27 @@ public @interface RegistryContainer {
 	FieldRef itemGroup() default @FieldRef(clazz = Void.class, field = "");
 	
 	/**
-	 * Custom templates.
+	 * Custom templates. Files are resolved against the directory in the <code>mcap.templates</code> processor option, or
+	 * else the <code>templates</code> directory under the <code>buildDir</code> option. Gradle incremental compilation
+	 * does not track these files, so pass <code>mcap.templates</code> from a <code>CommandLineArgumentProvider</code>
+	 * whose directory is an <code>@InputDirectory</code> with relative path sensitivity: template edits then trigger a
+	 * rebuild, and the absolute path stays out of the build cache key.
 	 */
 	Template[] templates() default {};
+	
+	/**
+	 * Position of this container's registrar in the aggregate registrar generated with the <code>mcap.aggregate</code>
+	 * processor option. Lower runs first, ties are broken by qualified class name.
+	 */
+	int order() default 0;
+	
+	/**
+	 * Per-block data tables. Declaring any gives the registrar <code>ordinalOf</code> accessors, as does the
+	 * <code>mcap.ordinals</code> processor option.
+	 */
+	DataTable[] blockData() default {};
+	/**
+	 * Per-item data tables, as {@link #blockData()}. Automatic block items have no ordinal and no data.
+	 */
+	DataTable[] itemData() default {};
 }
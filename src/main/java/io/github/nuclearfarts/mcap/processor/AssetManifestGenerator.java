@@ -0,0 +1,138 @@
+package io.github.nuclearfarts.mcap.processor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.Modifier;
+
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+import io.github.nuclearfarts.mcap.TemplateType;
+
+/**
+ * Builds the <code>*Assets</code> type for a container, which answers which generated asset types exist for an id
+ * without touching the resource manager. Ids and their flag bits are packed into string constants, which cost nothing
+ * but constant pool space, and unpacked once into an open addressing table when the class initializes.
+ */
+public class AssetManifestGenerator {
+	/**
+	 * Max chars per packed constant. Ids are usually ASCII, but this keeps even all-BMP data under the 65535 byte
+	 * modified UTF-8 limit of a constant.
+	 */
+	private static final int CHUNK_CHARS = 16000;
+	
+	private final TypeName identifierName;
+	
+	public AssetManifestGenerator(TypeName identifierName) {
+		this.identifierName = identifierName;
+	}
+	
+	public static int flag(TemplateType type) {
+		return 1 << type.ordinal();
+	}
+	
+	/**
+	 * @return the manifest type, or null if the container generates no assets
+	 */
+	public TypeSpec generate(String className, String modId, List<ResourceJob> jobs) {
+		Map<String, Integer> flags = new LinkedHashMap<>();
+		for(ResourceJob job : jobs) {
+			flags.merge(job.getId(), flag(job.getType().getEquivalent()), (a, b) -> a | b);
+		}
+		if(flags.isEmpty()) {
+			return null;
+		}
+		List<String> chunks = new ArrayList<>();
+		StringBuilder chunk = new StringBuilder();
+		for(Map.Entry<String, Integer> e : flags.entrySet()) {
+			if(chunk.length() > 0 && chunk.length() + e.getKey().length() + 2 > CHUNK_CHARS) {
+				chunks.add(chunk.toString());
+				chunk.setLength(0);
+			}
+			chunk.append((char) ('0' + e.getValue())).append(e.getKey()).append('\n');
+		}
+		chunks.add(chunk.toString());
+		
+		TypeSpec.Builder manifest = TypeSpec.classBuilder(className)
+				.addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+				.addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build())
+				.addField(flagField("ITEM_MODEL", TemplateType.ITEM))
+				.addField(flagField("BLOCK_MODEL", TemplateType.BLOCK))
+				.addField(flagField("BLOCKSTATE", TemplateType.BLOCKSTATE))
+				.addField(flagField("LOOT_TABLE", TemplateType.LOOT))
+				.addField(FieldSpec.builder(String.class, "NAMESPACE", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+						.initializer("$S", modId)
+						.build())
+				.addField(FieldSpec.builder(TypeName.INT, "SIZE", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+						.initializer("$L", flags.size())
+						.build())
+				.addField(ArrayTypeName.of(String.class), "KEYS", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+				.addField(ArrayTypeName.of(TypeName.BYTE), "FLAGS", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL);
+		CodeBlock.Builder data = CodeBlock.builder();
+		for(int i = 0; i < chunks.size(); i++) {
+			// one constant per chunk, joined at runtime, since a constant expression concatenation would be folded back into one oversized constant
+			manifest.addField(FieldSpec.builder(String.class, "DATA_" + i, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+					.initializer("$S", chunks.get(i))
+					.build());
+			data.add(i == 0 ? "$L" : ", $L", "DATA_" + i);
+		}
+		
+		manifest.addStaticBlock(CodeBlock.builder()
+				.addStatement("$T data = $L", String.class, chunks.size() == 1 ? CodeBlock.of("DATA_0") : CodeBlock.of("$T.join(\"\", $L)", String.class, data.build()))
+				.addStatement("int mask = Integer.highestOneBit(SIZE * 2 - 1) * 2 - 1")
+				.addStatement("KEYS = new $T[mask + 1]", String.class)
+				.addStatement("FLAGS = new byte[mask + 1]")
+				.beginControlFlow("for(int start = 0, end; start < data.length(); start = end + 1)")
+				.addStatement("end = data.indexOf('\\n', start)")
+				.addStatement("$T id = data.substring(start + 1, end)", String.class)
+				.addStatement("int slot = id.hashCode() & mask")
+				.beginControlFlow("while(KEYS[slot] != null)")
+				.addStatement("slot = (slot + 1) & mask")
+				.endControlFlow()
+				.addStatement("KEYS[slot] = id")
+				.addStatement("FLAGS[slot] = (byte) (data.charAt(start) - '0')")
+				.endControlFlow()
+				.build());
+		
+		manifest.addMethod(MethodSpec.methodBuilder("get")
+				.addJavadoc("Returns the asset flags generated for a path in {@link #NAMESPACE}, or 0 if there are none.\n")
+				.addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+				.returns(TypeName.INT)
+				.addParameter(String.class, "path")
+				.addStatement("int mask = KEYS.length - 1")
+				.beginControlFlow("for(int slot = path.hashCode() & mask; KEYS[slot] != null; slot = (slot + 1) & mask)")
+				.beginControlFlow("if(KEYS[slot].equals(path))")
+				.addStatement("return FLAGS[slot]")
+				.endControlFlow()
+				.endControlFlow()
+				.addStatement("return 0")
+				.build());
+		manifest.addMethod(MethodSpec.methodBuilder("get")
+				.addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+				.returns(TypeName.INT)
+				.addParameter(identifierName, "id")
+				.addStatement("return NAMESPACE.equals(id.getNamespace()) ? get(id.getPath()) : 0")
+				.build());
+		manifest.addMethod(MethodSpec.methodBuilder("has")
+				.addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+				.returns(TypeName.BOOLEAN)
+				.addParameter(identifierName, "id")
+				.addParameter(TypeName.INT, "flags")
+				.addStatement("return (get(id) & flags) == flags")
+				.build());
+		return manifest.build();
+	}
+	
+	private static FieldSpec flagField(String name, TemplateType type) {
+		return FieldSpec.builder(TypeName.INT, name, Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+				.initializer("$L", flag(type))
+				.build();
+	}
+}
@@ -0,0 +1,259 @@
+package io.github.nuclearfarts.mcap.processor;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Standalone entrypoint re-rendering generated assets from the container models the processor persists with the
+ * <code>mcap.persistModel</code> option, without running javac. In watch mode, a changed template re-renders only the
+ * resources using it, and a rewritten model (after a recompile) re-renders that container.
+ * <p>
+ * Usage: <code>java -jar mc-ap.jar &lt;buildDir&gt; &lt;outputDir&gt; [--watch] [--minify] [--builtins &lt;dir&gt;]
+ * [--templates &lt;dir&gt;]</code>. <code>--builtins</code> loads builtin templates from a directory, such as mc-ap's own
+ * <code>src/main/resources/templates</code>, so edits to them are picked up too. <code>--templates</code> watches the
+ * directory given to the processor as <code>mcap.templates</code> instead of <code>buildDir/templates</code>.
+ */
+public class AssetRenderer {
+	private final Path templateDir;
+	private final Path modelDir;
+	private final Path outputDir;
+	private final Path builtinDir;
+	private final boolean minify;
+	private final Map<Path, ContainerModel> models = new HashMap<>();
+	private final Map<String, LoadedTemplate> templates = new HashMap<>();
+	
+	public AssetRenderer(Path buildDir, Path outputDir, Path builtinDir, Path templateDir, boolean minify) {
+		this.templateDir = (templateDir == null ? buildDir.resolve("templates") : templateDir).toAbsolutePath().normalize();
+		modelDir = buildDir.resolve("mcap").resolve("models").toAbsolutePath().normalize();
+		this.outputDir = outputDir;
+		this.builtinDir = builtinDir == null ? null : builtinDir.toAbsolutePath().normalize();
+		this.minify = minify;
+	}
+	
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Path buildDir = null;
+		Path outputDir = null;
+		Path builtinDir = null;
+		Path templateDir = null;
+		boolean watch = false;
+		boolean minify = false;
+		for(int i = 0; i < args.length; i++) {
+			switch(args[i]) {
+			case "--watch": watch = true; break;
+			case "--minify": minify = true; break;
+			case "--builtins": builtinDir = ++i < args.length ? Paths.get(args[i]) : null; break;
+			case "--templates": templateDir = ++i < args.length ? Paths.get(args[i]) : null; break;
+			default:
+				if(buildDir == null) {
+					buildDir = Paths.get(args[i]);
+				} else if(outputDir == null) {
+					outputDir = Paths.get(args[i]);
+				}
+			}
+		}
+		if(buildDir == null || outputDir == null) {
+			System.err.println("Usage: AssetRenderer <buildDir> <outputDir> [--watch] [--minify] [--builtins <dir>] [--templates <dir>]");
+			System.exit(2);
+			return;
+		}
+		AssetRenderer renderer = new AssetRenderer(buildDir, outputDir, builtinDir, templateDir, minify);
+		long start = System.nanoTime();
+		int count = renderer.renderAll();
+		System.out.printf("Rendered %d resources in %d ms%n", count, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		if(watch) {
+			renderer.watch();
+		}
+	}
+	
+	/**
+	 * Loads every persisted model and renders all of their resources.
+	 */
+	public int renderAll() throws IOException {
+		models.clear();
+		if(Files.isDirectory(modelDir)) {
+			try(Stream<Path> files = Files.list(modelDir)) {
+				for(Path file : (Iterable<Path>) files.filter(p -> p.toString().endsWith(".model"))::iterator) {
+					models.put(file, ContainerModel.read(file));
+				}
+			}
+		}
+		return render(models.values(), null);
+	}
+	
+	/**
+	 * Renders the resources of the given models whose template source is in <code>sources</code>, or all of them if
+	 * <code>sources</code> is null.
+	 */
+	private int render(Iterable<ContainerModel> toRender, Set<String> sources) throws IOException {
+		DirectResourceWriter writer = new DirectResourceWriter(outputDir);
+		StringBuilder buffer = new StringBuilder(512);
+		StringBuilder minified = new StringBuilder(512);
+		int count = 0;
+		for(ContainerModel model : toRender) {
+			for(ContainerModel.Entry entry : model.getEntries()) {
+				if(sources != null && !sources.contains(entry.getTemplateSource())) {
+					continue;
+				}
+				ResourceJob job;
+				try {
+					LoadedTemplate template = template(entry.getTemplateSource());
+					if(template.getArgCount() > entry.getArgs().length) {
+						System.err.printf("%s: %s template %s requires %d args but %d were given%n", model.getOwner(), entry.getType(), entry.getTemplateSource(), template.getArgCount(), entry.getArgs().length);
+						continue;
+					}
+					job = entry.toJob(template, model.getModId());
+				} catch (IOException | IllegalArgumentException e) {
+					System.err.printf("%s: could not load template %s: %s%n", model.getOwner(), entry.getTemplateSource(), e);
+					continue;
+				}
+				buffer.setLength(0);
+				job.renderTo(buffer);
+				CharSequence contents = buffer;
+				if(minify) {
+					minified.setLength(0);
+					try {
+						JsonMinifier.minify(buffer, minified);
+						contents = minified;
+					} catch (IllegalArgumentException e) {
+						System.err.printf("%s.%s: generated %s is not valid JSON: %s%n", model.getOwner(), job.getField(), OutputManifest.pathOf(job.getPackage(), job.getFileName()), e.getMessage());
+						continue;
+					}
+				}
+				writer.write(job.getPackage(), job.getFileName(), contents);
+				count++;
+			}
+		}
+		writer.commit();
+		return count;
+	}
+	
+	private LoadedTemplate template(String source) throws IOException {
+		LoadedTemplate template = templates.get(source);
+		if(template == null) {
+			if(source.startsWith("builtin:")) {
+				String name = source.substring("builtin:".length());
+				template = builtinDir == null ? TemplateLoader.loadBuiltin(name) : new LoadedTemplate(read(builtinDir.resolve(name + ".json")), source);
+			} else {
+				template = new LoadedTemplate(read(Paths.get(source)), source);
+			}
+			templates.put(source, template);
+		}
+		return template;
+	}
+	
+	private static String read(Path file) throws IOException {
+		return LoadedTemplate.readText(Files.newInputStream(file));
+	}
+	
+	/**
+	 * Watches the template, model and builtin directories until interrupted, re-rendering what each change affects.
+	 * Events are coalesced over a short quiet period, since editors tend to write a file several times per save.
+	 */
+	public void watch() throws IOException, InterruptedException {
+		try(WatchService watcher = FileSystems.getDefault().newWatchService()) {
+			Map<WatchKey, Path> dirs = new HashMap<>();
+			registerTree(watcher, dirs, templateDir);
+			Files.createDirectories(modelDir);
+			registerTree(watcher, dirs, modelDir);
+			if(builtinDir != null) {
+				registerTree(watcher, dirs, builtinDir);
+			}
+			System.out.println("Watching " + dirs.values());
+			while(true) {
+				Set<Path> changed = new HashSet<>();
+				WatchKey key = watcher.take();
+				do {
+					Path dir = dirs.get(key);
+					for(WatchEvent<?> event : key.pollEvents()) {
+						if(event.kind() != StandardWatchEventKinds.OVERFLOW && dir != null) {
+							Path p = dir.resolve((Path) event.context());
+							if(Files.isDirectory(p) && event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+								registerTree(watcher, dirs, p);
+							}
+							changed.add(p);
+						}
+					}
+					if(!key.reset()) {
+						dirs.remove(key);
+					}
+					key = watcher.poll(50, TimeUnit.MILLISECONDS);
+				} while(key != null);
+				long start = System.nanoTime();
+				int count = onChange(changed);
+				if(count > 0) {
+					System.out.printf("Re-rendered %d resources in %d ms%n", count, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+				}
+			}
+		} catch (ClosedWatchServiceException e) {
+			// shut down
+		}
+	}
+	
+	private int onChange(Set<Path> changed) {
+		Set<String> sources = new HashSet<>();
+		Set<ContainerModel> reloaded = new HashSet<>();
+		for(Path p : changed) {
+			if(p.startsWith(modelDir)) {
+				if(p.toString().endsWith(".model")) {
+					try {
+						if(Files.exists(p)) {
+							ContainerModel model = ContainerModel.read(p);
+							models.put(p, model);
+							reloaded.add(model);
+						} else {
+							models.remove(p);
+						}
+					} catch (IOException e) {
+						System.err.println("Could not read model " + p + ": " + e);
+					}
+				}
+			} else if(builtinDir != null && p.startsWith(builtinDir) && p.toString().endsWith(".json")) {
+				String name = builtinDir.relativize(p).toString().replace('\\', '/');
+				sources.add("builtin:" + name.substring(0, name.length() - ".json".length()));
+			} else {
+				sources.add(p.toString());
+			}
+		}
+		for(String source : sources) {
+			templates.remove(source);
+		}
+		int count = 0;
+		try {
+			if(!reloaded.isEmpty()) {
+				templates.clear();
+				count += render(reloaded, null);
+			}
+			if(!sources.isEmpty()) {
+				count += render(models.values(), sources);
+			}
+		} catch (IOException e) {
+			System.err.println("Could not write assets: " + e);
+		}
+		return count;
+	}
+	
+	private static void registerTree(WatchService watcher, Map<WatchKey, Path> dirs, Path root) throws IOException {
+		if(!Files.isDirectory(root)) {
+			return;
+		}
+		try(Stream<Path> walk = Files.walk(root)) {
+			for(Path dir : (Iterable<Path>) walk.filter(Files::isDirectory)::iterator) {
+				dirs.put(dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), dir);
+			}
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package io.github.nuclearfarts.mcap.processor;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The parsed assets of one container as persisted to <code>buildDir/mcap/models</code>: modid, template sources and
+ * one entry per resource with its type, id, field and args. Enough for {@link AssetRenderer} to re-render the
+ * container's assets without javac.
+ */
+public class ContainerModel {
+	public static final String HEADER = "mcap-model 1";
+	
+	private final String owner;
+	private final String modId;
+	private final List<Entry> entries;
+	
+	private ContainerModel(String owner, String modId, List<Entry> entries) {
+		this.owner = owner;
+		this.modId = modId;
+		this.entries = entries;
+	}
+	
+	public String getOwner() {
+		return owner;
+	}
+	
+	public String getModId() {
+		return modId;
+	}
+	
+	public List<Entry> getEntries() {
+		return Collections.unmodifiableList(entries);
+	}
+	
+	public static Path pathOf(Path modelDir, String owner) {
+		return modelDir.resolve(owner + ".model");
+	}
+	
+	/**
+	 * Writes the model of a container's jobs, replacing the previous one atomically. Jobs whose template was not loaded
+	 * from a builtin or a file are skipped, since they cannot be reloaded.
+	 */
+	public static void write(Path file, String owner, String modId, List<ResourceJob> jobs) throws IOException {
+		Files.createDirectories(file.getParent());
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		Map<String, Integer> sources = new LinkedHashMap<>();
+		try(BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+			w.write(HEADER);
+			w.write("\nowner\t" + escape(owner) + "\nmodid\t" + escape(modId) + "\n");
+			for(ResourceJob job : jobs) {
+				String source = job.getTemplate().getSource();
+				if(source != null && !sources.containsKey(source)) {
+					sources.put(source, sources.size());
+					w.write("template\t" + escape(source) + "\n");
+				}
+			}
+			StringBuilder line = new StringBuilder();
+			for(ResourceJob job : jobs) {
+				Integer source = sources.get(job.getTemplate().getSource());
+				if(source == null) {
+					continue;
+				}
+				line.setLength(0);
+				line.append("job\t").append(job.getType().name()).append('\t').append(source).append('\t').append(escape(job.getId())).append('\t').append(escape(job.getField()));
+				for(String arg : job.getArgs()) {
+					line.append('\t').append(escape(arg));
+				}
+				w.write(line.append('\n').toString());
+			}
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+	
+	public static ContainerModel read(Path file) throws IOException {
+		try(BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			if(!HEADER.equals(r.readLine())) {
+				throw new IOException("Not an mc-ap model: " + file);
+			}
+			String owner = null;
+			String modId = null;
+			List<String> sources = new ArrayList<>();
+			List<Entry> entries = new ArrayList<>();
+			String line;
+			while((line = r.readLine()) != null) {
+				String[] parts = line.split("\t", -1);
+				for(int i = 0; i < parts.length; i++) {
+					parts[i] = unescape(parts[i]);
+				}
+				try {
+					switch(parts[0]) {
+					case "owner": owner = parts[1]; break;
+					case "modid": modId = parts[1]; break;
+					case "template": sources.add(parts[1]); break;
+					case "job":
+						entries.add(new Entry(ProcessorTemplateType.valueOf(parts[1]), sources.get(Integer.parseInt(parts[2])), parts[3], parts[4], Arrays.copyOfRange(parts, 5, parts.length)));
+						break;
+					default: throw new IOException("Unknown model line: " + line);
+					}
+				} catch (RuntimeException e) {
+					throw new IOException("Malformed model line in " + file + ": " + line, e);
+				}
+			}
+			return new ContainerModel(owner, modId, entries);
+		}
+	}
+	
+	private static String escape(String s) {
+		if(s.indexOf('\\') == -1 && s.indexOf('\t') == -1 && s.indexOf('\n') == -1 && s.indexOf('\r') == -1) {
+			return s;
+		}
+		return s.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+	}
+	
+	private static String unescape(String s) {
+		if(s.indexOf('\\') == -1) {
+			return s;
+		}
+		StringBuilder sb = new StringBuilder(s.length());
+		for(int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if(c == '\\' && i + 1 < s.length()) {
+				char next = s.charAt(++i);
+				sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+	
+	public static class Entry {
+		private final ProcessorTemplateType type;
+		private final String templateSource;
+		private final String id;
+		private final String field;
+		private final String[] args;
+		
+		private Entry(ProcessorTemplateType type, String templateSource, String id, String field, String[] args) {
+			this.type = type;
+			this.templateSource = templateSource;
+			this.id = id;
+			this.field = field;
+			this.args = args;
+		}
+		
+		public ProcessorTemplateType getType() {
+			return type;
+		}
+		
+		public String getTemplateSource() {
+			return templateSource;
+		}
+		
+		public String[] getArgs() {
+			return args;
+		}
+		
+		public ResourceJob toJob(LoadedTemplate template, String modId) {
+			return new ResourceJob(type, template, modId, id, args, field);
+		}
+	}
+}
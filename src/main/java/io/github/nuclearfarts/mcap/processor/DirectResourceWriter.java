@@ -0,0 +1,133 @@
+package io.github.nuclearfarts.mcap.processor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Writes generated assets straight to a directory, bypassing the Filer. Files are staged in a sibling directory through
+ * a reused encoder and buffer, and only moved into place by {@link #commit()}, so an interrupted build never leaves a
+ * half-written asset in the output.
+ */
+public class DirectResourceWriter {
+	private final Path outputDir;
+	private final Path stagingDir;
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(8192);
+	private final Set<Path> createdDirs = new HashSet<>();
+	private final Set<String> staged = new LinkedHashSet<>();
+	private boolean failed = false;
+	
+	public DirectResourceWriter(Path outputDir) throws IOException {
+		this.outputDir = outputDir;
+		stagingDir = outputDir.resolveSibling(outputDir.getFileName() + ".mcap-staging");
+		deleteTree(stagingDir);
+		Files.createDirectories(stagingDir);
+	}
+	
+	public Path getOutputDir() {
+		return outputDir;
+	}
+	
+	/**
+	 * Returns the committed file for a resource, or null if there is none.
+	 */
+	public Path getExisting(String pkg, String fileName) {
+		Path p = outputDir.resolve(OutputManifest.pathOf(pkg, fileName));
+		return Files.isRegularFile(p) ? p : null;
+	}
+	
+	public synchronized void write(String pkg, String fileName, CharSequence contents) throws IOException {
+		String path = OutputManifest.pathOf(pkg, fileName);
+		Path target = stagingDir.resolve(path);
+		Path parent = target.getParent();
+		if(createdDirs.add(parent)) {
+			Files.createDirectories(parent);
+		}
+		try(FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			CharBuffer in = CharBuffer.wrap(contents);
+			encoder.reset();
+			CoderResult result;
+			do {
+				result = encoder.encode(in, buffer, true);
+				if(result.isError()) {
+					result.throwException();
+				}
+				drain(channel);
+			} while(result.isOverflow());
+			do {
+				result = encoder.flush(buffer);
+				drain(channel);
+			} while(result.isOverflow());
+		} catch (IOException | RuntimeException e) {
+			failed = true;
+			throw e;
+		}
+		staged.add(path);
+	}
+	
+	private void drain(FileChannel channel) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+	
+	/**
+	 * Moves every staged file into the output directory and removes the staging directory. If any write failed, nothing
+	 * is moved.
+	 * @return false if a write failed and nothing was moved
+	 */
+	public synchronized boolean commit() throws IOException {
+		if(failed) {
+			abort();
+			return false;
+		}
+		Set<Path> targetDirs = new HashSet<>();
+		for(String path : staged) {
+			Path target = outputDir.resolve(path);
+			if(targetDirs.add(target.getParent())) {
+				Files.createDirectories(target.getParent());
+			}
+			try {
+				Files.move(stagingDir.resolve(path), target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(stagingDir.resolve(path), target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		staged.clear();
+		deleteTree(stagingDir);
+		return true;
+	}
+	
+	public synchronized void abort() throws IOException {
+		staged.clear();
+		deleteTree(stagingDir);
+	}
+	
+	private static void deleteTree(Path dir) throws IOException {
+		if(!Files.exists(dir)) {
+			return;
+		}
+		try(Stream<Path> walk = Files.walk(dir)) {
+			for(Path p : (Iterable<Path>) walk.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(p);
+			}
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package io.github.nuclearfarts.mcap.processor;
+
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeName;
+
+/**
+ * How a registered entry's value is obtained. Plain static fields are read as they are. Lazy holders, a static
+ * <code>Supplier</code> field or a static no-arg factory method, are only invoked once the registrar registers or
+ * someone asks its typed accessor for the entry, so they stay out of the owner's static initializer.
+ */
+public final class EntryHolder {
+	/**
+	 * Shared by every entry read from a plain static field.
+	 */
+	public static final EntryHolder FIELD = new EntryHolder(Kind.FIELD, null);
+	
+	public enum Kind {
+		FIELD,
+		SUPPLIER,
+		FACTORY
+	}
+	
+	private final Kind kind;
+	private final TypeName valueType;
+	
+	public EntryHolder(Kind kind, TypeName valueType) {
+		this.kind = kind;
+		this.valueType = valueType;
+	}
+	
+	public Kind getKind() {
+		return kind;
+	}
+	
+	public boolean isLazy() {
+		return kind != Kind.FIELD;
+	}
+	
+	/**
+	 * @return the type of the held value, or null for plain fields
+	 */
+	public TypeName getValueType() {
+		return valueType;
+	}
+	
+	/**
+	 * Expression reading or creating the value from its owner.
+	 */
+	public CodeBlock create(TypeName owner, String name) {
+		switch(kind) {
+		case SUPPLIER: return CodeBlock.of("$T.$L.get()", owner, name);
+		case FACTORY: return CodeBlock.of("$T.$L()", owner, name);
+		default: return CodeBlock.of("$T.$L", owner, name);
+		}
+	}
+}
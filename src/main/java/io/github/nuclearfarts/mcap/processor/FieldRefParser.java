@@ -0,0 +1,50 @@
+package io.github.nuclearfarts.mcap.processor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import com.squareup.javapoet.TypeName;
+
+import io.github.nuclearfarts.mcap.annotation.FieldRef;
+
+/**
+ * Resolves {@link FieldRef}s to shared {@link ParsedFieldRef} instances, so every entry naming the same field holds the
+ * same object and none of them keeps a javac type alive.
+ */
+public class FieldRefParser implements Function<FieldRef, ParsedFieldRef> {
+	private final Elements elements;
+	private final Types types;
+	private final TypeMirror voidMirror;
+	private final Map<String, ParsedFieldRef> interned = new HashMap<>();
+	
+	public FieldRefParser(Elements elements, Types types) {
+		this.elements = elements;
+		this.types = types;
+		voidMirror = elements.getTypeElement("java.lang.Void").asType();
+	}
+	
+	@Override
+	public ParsedFieldRef apply(FieldRef fieldRef) {
+		TypeMirror t = thisApiSucksMore(fieldRef);
+		if(types.isSameType(t, voidMirror) && !fieldRef.field().equals("#$%INHERIT")) {
+			return null;
+		}
+		return interned.computeIfAbsent(t.toString() + "#" + fieldRef.field(), k -> new ParsedFieldRef(TypeName.get(t), fieldRef.field()));
+	}
+	
+	private TypeMirror thisApiSucksMore(FieldRef fieldRef) {
+		TypeMirror mirror;
+		try {
+			mirror = elements.getTypeElement(fieldRef.clazz().getCanonicalName()).asType();
+		} catch(MirroredTypeException e) {
+			mirror = e.getTypeMirror();
+		}
+		return mirror;
+	}
+}
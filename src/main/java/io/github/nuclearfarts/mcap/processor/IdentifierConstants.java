@@ -0,0 +1,103 @@
+package io.github.nuclearfarts.mcap.processor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.Modifier;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+/**
+ * Generated holder of one <code>static final Identifier</code> per registered id. Past {@link #SHARD_THRESHOLD} ids the
+ * constants are split into nested shard classes, the same way the registrar does, to keep each static initializer
+ * bounded.
+ */
+public class IdentifierConstants {
+	public static final int SHARD_THRESHOLD = 512;
+	
+	private final ClassName holderName;
+	private final List<String> ids;
+	private final Map<String, String> constantNames = new HashMap<>();
+	private final Map<String, Integer> shards = new HashMap<>();
+	private final boolean sharded;
+	
+	public IdentifierConstants(ClassName holderName, List<ParsedBlock> blocks, List<ParsedItem> items) {
+		this.holderName = holderName;
+		Set<String> unique = new LinkedHashSet<>();
+		for(ParsedBlock block : blocks) {
+			unique.add(block.getId());
+		}
+		for(ParsedItem item : items) {
+			unique.add(item.getId());
+		}
+		ids = new ArrayList<>(unique);
+		sharded = ids.size() > SHARD_THRESHOLD;
+		Set<String> used = new HashSet<>();
+		for(int i = 0; i < ids.size(); i++) {
+			String id = ids.get(i);
+			String name = toConstantName(id);
+			String unused = name;
+			for(int suffix = 2; !used.add(unused); suffix++) {
+				unused = name + "_" + suffix;
+			}
+			constantNames.put(id, unused);
+			shards.put(id, i / RegistrarGenerator.SHARD_SIZE);
+		}
+	}
+	
+	/**
+	 * Expression referencing the constant for an id.
+	 */
+	public CodeBlock ref(String id) {
+		if(sharded) {
+			return CodeBlock.of("$T.$L", holderName.nestedClass("Shard" + shards.get(id)), constantNames.get(id));
+		}
+		return CodeBlock.of("$T.$L", holderName, constantNames.get(id));
+	}
+	
+	public TypeSpec generate(TypeName identifierName, String modId) {
+		TypeSpec.Builder holder = TypeSpec.classBuilder(holderName.simpleName())
+				.addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+				.addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build());
+		if(sharded) {
+			for(int start = 0, shard = 0; start < ids.size(); start += RegistrarGenerator.SHARD_SIZE, shard++) {
+				TypeSpec.Builder nested = TypeSpec.classBuilder("Shard" + shard).addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL);
+				addConstants(nested, ids.subList(start, Math.min(start + RegistrarGenerator.SHARD_SIZE, ids.size())), identifierName, modId);
+				holder.addType(nested.build());
+			}
+		} else {
+			addConstants(holder, ids, identifierName, modId);
+		}
+		return holder.build();
+	}
+	
+	private void addConstants(TypeSpec.Builder builder, List<String> chunk, TypeName identifierName, String modId) {
+		for(String id : chunk) {
+			builder.addField(FieldSpec.builder(identifierName, constantNames.get(id), Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+					.initializer("new $T($S, $S)", identifierName, modId, id)
+					.build());
+		}
+	}
+	
+	private static String toConstantName(String id) {
+		StringBuilder name = new StringBuilder(id.length() + 1);
+		if(id.isEmpty() || Character.isDigit(id.charAt(0))) {
+			name.append('_');
+		}
+		for(int i = 0; i < id.length(); i++) {
+			char c = id.charAt(i);
+			name.append(c < 128 && Character.isLetterOrDigit(c) ? Character.toUpperCase(c) : '_');
+		}
+		return name.toString();
+	}
+}
@@ -0,0 +1,229 @@
+package io.github.nuclearfarts.mcap.processor;
+
+/**
+ * Single pass JSON validator that appends the input with all insignificant whitespace removed. Nesting is tracked with an
+ * explicit stack rather than recursion, so deeply nested templates cannot overflow the compiler thread's stack.
+ */
+public class JsonMinifier {
+	private static final int VALUE = 0, KEY = 1, AFTER_VALUE = 2;
+	
+	private final CharSequence in;
+	private final StringBuilder out;
+	private final int length;
+	private int pos = 0;
+	private char[] stack = new char[16];
+	private int depth = 0;
+	
+	private JsonMinifier(CharSequence in, StringBuilder out) {
+		this.in = in;
+		this.out = out;
+		length = in.length();
+	}
+	
+	/**
+	 * Appends the minified form of the single JSON value in <code>in</code> to <code>out</code>.
+	 * @throws IllegalArgumentException if <code>in</code> is not well-formed JSON
+	 */
+	public static void minify(CharSequence in, StringBuilder out) {
+		new JsonMinifier(in, out).run();
+	}
+	
+	private void run() {
+		int state = VALUE;
+		while(true) {
+			skipWhitespace();
+			if(state == AFTER_VALUE) {
+				if(depth == 0) {
+					if(pos < length) {
+						throw error("Unexpected characters after the top level value");
+					}
+					return;
+				}
+				char open = stack[depth - 1];
+				char close = open == '{' ? '}' : ']';
+				char c = next("',' or '" + close + "'");
+				if(c == ',') {
+					out.append(',');
+					state = open == '{' ? KEY : VALUE;
+				} else if(c == close) {
+					out.append(c);
+					depth--;
+				} else {
+					pos--;
+					throw error("Expected ',' or '" + close + "'");
+				}
+			} else if(state == KEY) {
+				if(pos >= length || in.charAt(pos) != '"') {
+					throw error("Expected a string key");
+				}
+				string();
+				skipWhitespace();
+				if(next("':'") != ':') {
+					pos--;
+					throw error("Expected ':'");
+				}
+				out.append(':');
+				state = VALUE;
+			} else {
+				state = value();
+			}
+		}
+	}
+	
+	private int value() {
+		if(pos >= length) {
+			throw error("Unexpected end of input");
+		}
+		char c = in.charAt(pos);
+		switch(c) {
+		case '{':
+		case '[':
+			pos++;
+			out.append(c);
+			skipWhitespace();
+			char close = c == '{' ? '}' : ']';
+			if(pos < length && in.charAt(pos) == close) {
+				pos++;
+				out.append(close);
+				return AFTER_VALUE;
+			}
+			if(depth == stack.length) {
+				char[] grown = new char[depth * 2];
+				System.arraycopy(stack, 0, grown, 0, depth);
+				stack = grown;
+			}
+			stack[depth++] = c;
+			return c == '{' ? KEY : VALUE;
+		case '"':
+			string();
+			return AFTER_VALUE;
+		case 't':
+			literal("true");
+			return AFTER_VALUE;
+		case 'f':
+			literal("false");
+			return AFTER_VALUE;
+		case 'n':
+			literal("null");
+			return AFTER_VALUE;
+		default:
+			if(c == '-' || c >= '0' && c <= '9') {
+				number();
+				return AFTER_VALUE;
+			}
+			throw error("Unexpected character '" + c + "'");
+		}
+	}
+	
+	private void string() {
+		int start = pos++;
+		while(true) {
+			if(pos >= length) {
+				pos = start;
+				throw error("Unterminated string");
+			}
+			char c = in.charAt(pos);
+			if(c == '"') {
+				pos++;
+				out.append(in, start, pos);
+				return;
+			} else if(c == '\\') {
+				pos++;
+				char escape = pos < length ? in.charAt(pos) : 0;
+				if(escape == 'u') {
+					for(int i = 1; i <= 4; i++) {
+						if(pos + i >= length || Character.digit(in.charAt(pos + i), 16) == -1) {
+							throw error("Invalid unicode escape");
+						}
+					}
+					pos += 5;
+				} else if("\"\\/bfnrt".indexOf(escape) != -1 && escape != 0) {
+					pos++;
+				} else {
+					throw error("Invalid escape sequence");
+				}
+			} else if(c < 0x20) {
+				throw error("Unescaped control character in string");
+			} else {
+				pos++;
+			}
+		}
+	}
+	
+	private void number() {
+		int start = pos;
+		if(in.charAt(pos) == '-') {
+			pos++;
+		}
+		if(pos < length && in.charAt(pos) == '0') {
+			pos++;
+		} else if(digits() == 0) {
+			throw error("Invalid number");
+		}
+		if(pos < length && in.charAt(pos) == '.') {
+			pos++;
+			if(digits() == 0) {
+				throw error("Invalid number");
+			}
+		}
+		if(pos < length && (in.charAt(pos) == 'e' || in.charAt(pos) == 'E')) {
+			pos++;
+			if(pos < length && (in.charAt(pos) == '+' || in.charAt(pos) == '-')) {
+				pos++;
+			}
+			if(digits() == 0) {
+				throw error("Invalid number");
+			}
+		}
+		out.append(in, start, pos);
+	}
+	
+	private int digits() {
+		int start = pos;
+		while(pos < length && in.charAt(pos) >= '0' && in.charAt(pos) <= '9') {
+			pos++;
+		}
+		return pos - start;
+	}
+	
+	private void literal(String literal) {
+		for(int i = 0; i < literal.length(); i++) {
+			if(pos + i >= length || in.charAt(pos + i) != literal.charAt(i)) {
+				throw error("Unexpected character '" + in.charAt(pos) + "'");
+			}
+		}
+		pos += literal.length();
+		out.append(literal);
+	}
+	
+	private char next(String expected) {
+		if(pos >= length) {
+			throw error("Expected " + expected + " but reached end of input");
+		}
+		return in.charAt(pos++);
+	}
+	
+	private void skipWhitespace() {
+		while(pos < length) {
+			char c = in.charAt(pos);
+			if(c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+				return;
+			}
+			pos++;
+		}
+	}
+	
+	private IllegalArgumentException error(String message) {
+		int line = 1;
+		int column = 1;
+		for(int i = 0; i < pos && i < length; i++) {
+			if(in.charAt(i) == '\n') {
+				line++;
+				column = 1;
+			} else {
+				column++;
+			}
+		}
+		return new IllegalArgumentException(String.format("%s at line %d, column %d", message, line, column));
+	}
+}
@@ -2,24 +2,156 @@ package io.github.nuclearfarts.mcap.processor;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Collectors;
 
+/**
+ * A template parsed once into literal runs and substitution slots. Supports <code>${modid}</code>, <code>${id}</code>
+ * and the subset of {@link String#format} syntax templates actually use: <code>%s</code>, <code>%N$s</code>,
+ * <code>%%</code> and <code>%n</code>. Unlike <code>String.format</code>, <code>%n</code> is always <code>\n</code>, the
+ * terminator {@link #readText} normalizes to, so a template renders the same bytes on every platform.
+ */
 public class LoadedTemplate {
-	private final String text;
+	private static final int SLOT_MODID = -1;
+	private static final int SLOT_ID = -2;
 	
-	public LoadedTemplate(String templateText, String modId) {
-		text = templateText.replace("${modid}", modId);
+	private final String[] literals;
+	private final int[] slots;
+	private final String tail;
+	private final int argCount;
+	private final int literalLength;
+	private final String source;
+	
+	public LoadedTemplate(String templateText) {
+		this(templateText, null);
+	}
+	
+	/**
+	 * @param source where the template was loaded from, <code>builtin:&lt;name&gt;</code> or an absolute file path
+	 */
+	public LoadedTemplate(String templateText, String source) {
+		this.source = source;
+		List<String> literalList = new ArrayList<>();
+		List<Integer> slotList = new ArrayList<>();
+		StringBuilder literal = new StringBuilder();
+		int ordinaryIndex = 0;
+		int maxArg = 0;
+		int length = 0;
+		int i = 0;
+		while(i < templateText.length()) {
+			char c = templateText.charAt(i);
+			if(c == '$' && templateText.startsWith("${modid}", i)) {
+				literalList.add(literal.toString());
+				slotList.add(SLOT_MODID);
+				length += literal.length();
+				literal.setLength(0);
+				i += "${modid}".length();
+			} else if(c == '$' && templateText.startsWith("${id}", i)) {
+				literalList.add(literal.toString());
+				slotList.add(SLOT_ID);
+				length += literal.length();
+				literal.setLength(0);
+				i += "${id}".length();
+			} else if(c == '%') {
+				int end = i + 1;
+				while(end < templateText.length() && Character.isDigit(templateText.charAt(end))) {
+					end++;
+				}
+				if(end >= templateText.length()) {
+					throw new IllegalArgumentException(String.format("Unterminated format specifier at offset %d", i));
+				}
+				char conv = templateText.charAt(end);
+				if(end == i + 1 && conv == '%') {
+					literal.append('%');
+				} else if(end == i + 1 && conv == 'n') {
+					literal.append('\n');
+				} else if(end == i + 1 && conv == 's') {
+					literalList.add(literal.toString());
+					slotList.add(ordinaryIndex);
+					length += literal.length();
+					literal.setLength(0);
+					maxArg = Math.max(maxArg, ++ordinaryIndex);
+				} else if(end > i + 1 && conv == '$' && end + 1 < templateText.length() && templateText.charAt(end + 1) == 's') {
+					int index = Integer.parseInt(templateText.substring(i + 1, end));
+					if(index == 0) {
+						throw new IllegalArgumentException(String.format("Illegal argument index 0 at offset %d", i));
+					}
+					literalList.add(literal.toString());
+					slotList.add(index - 1);
+					length += literal.length();
+					literal.setLength(0);
+					maxArg = Math.max(maxArg, index);
+					end++;
+				} else {
+					throw new IllegalArgumentException(String.format("Unsupported format specifier %s at offset %d", templateText.substring(i, Math.min(end + 1, templateText.length())), i));
+				}
+				i = end + 1;
+			} else {
+				literal.append(c);
+				i++;
+			}
+		}
+		literals = literalList.toArray(new String[0]);
+		slots = new int[slotList.size()];
+		for(int j = 0; j < slots.length; j++) {
+			slots[j] = slotList.get(j);
+		}
+		tail = literal.toString();
+		literalLength = length + tail.length();
+		argCount = maxArg;
+	}
+	
+	public static LoadedTemplate loadBuiltin(String loc) throws IOException {
+		return new LoadedTemplate(readText(LoadedTemplate.class.getResourceAsStream("/templates/" + loc + ".json")), "builtin:" + loc);
+	}
+	
+	/**
+	 * Reads template text as every loader does, so the processor and {@link AssetRenderer} render the same bytes: UTF-8,
+	 * with lines joined by <code>\n</code> whatever their terminator and no trailing newline.
+	 */
+	public static String readText(InputStream in) throws IOException {
+		try(BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+			return r.lines().collect(Collectors.joining("\n"));
+		}
+	}
+	
+	/**
+	 * Where the template was loaded from, or null if it was not loaded from a builtin or a file.
+	 */
+	public String getSource() {
+		return source;
+	}
+	
+	/**
+	 * Number of positional arguments this template reads.
+	 */
+	public int getArgCount() {
+		return argCount;
 	}
 	
-	public static LoadedTemplate loadBuiltin(String loc, String modId) throws IOException {
-		try(BufferedReader r = new BufferedReader(new InputStreamReader(LoadedTemplate.class.getResourceAsStream("/templates/" + loc + ".json")))) {
-			String text = r.lines().collect(Collectors.joining("\n"));
-			return new LoadedTemplate(text, modId);
+	public void renderTo(StringBuilder out, String modId, String ownId, String[] args) {
+		out.ensureCapacity(out.length() + literalLength + 16 * slots.length);
+		for(int i = 0; i < slots.length; i++) {
+			out.append(literals[i]);
+			int slot = slots[i];
+			if(slot == SLOT_MODID) {
+				out.append(modId);
+			} else if(slot == SLOT_ID) {
+				out.append(ownId);
+			} else {
+				out.append(args[slot]);
+			}
 		}
+		out.append(tail);
 	}
 	
-	public String with(String ownId, String[] args) {
-		return String.format(text.replace("${id}", ownId), (Object[]) args);
+	public String with(String modId, String ownId, String[] args) {
+		StringBuilder builder = new StringBuilder();
+		renderTo(builder, modId, ownId, args);
+		return builder.toString();
 	}
 }
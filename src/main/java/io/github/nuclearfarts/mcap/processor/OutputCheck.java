@@ -0,0 +1,104 @@
+package io.github.nuclearfarts.mcap.processor;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Digests of a container's outputs for mcap.selfCheck. The first run records what was written, a second run of the
+ * same container is verified against it, and any output that differs, is missing from either run or embeds an absolute
+ * path of this machine is a problem, since it would miss the build cache elsewhere.
+ * <p>
+ * Both runs happen in the same compilation, so this only catches nondeterminism within one process: iteration order,
+ * identity hashes, clocks. Anything that differs between JVMs or machines, like the default locale, charset, time zone
+ * or line separator, a different JDK, or state both runs share through static caches, looks the same to both runs and
+ * goes unnoticed. Digests are not kept across compilations, so comparing builds still takes building twice, ideally on
+ * two machines, and diffing the outputs.
+ */
+public class OutputCheck {
+	private final Map<String, Map<String, Entry>> outputs = new HashMap<>();
+	private final Map<String, List<String>> problems = new HashMap<>();
+	private final List<String> machinePaths = new ArrayList<>();
+	
+	public OutputCheck(Path... machinePaths) {
+		for(Path p : machinePaths) {
+			if(p != null) {
+				this.machinePaths.add(p.toAbsolutePath().normalize().toString());
+			}
+		}
+	}
+	
+	/**
+	 * Records an output of the first run.
+	 * @return a problem with its contents, or null
+	 */
+	public String record(String owner, String path, byte[] contents) {
+		outputs.computeIfAbsent(owner, o -> new LinkedHashMap<>()).put(path, new Entry(digest(contents)));
+		String text = new String(contents, StandardCharsets.UTF_8);
+		for(String machinePath : machinePaths) {
+			if(text.contains(machinePath)) {
+				return String.format("Generated %s embeds the machine-specific path %s", path, machinePath);
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Compares an output of the second run with the first.
+	 */
+	public void verify(String owner, String path, byte[] contents) {
+		Entry first = outputs.getOrDefault(owner, new HashMap<>()).get(path);
+		if(first == null) {
+			problem(owner, String.format("Generated %s only in the second run", path));
+		} else {
+			first.verified = true;
+			if(!MessageDigest.isEqual(first.digest, digest(contents))) {
+				problem(owner, String.format("Generated %s differs between two runs", path));
+			}
+		}
+	}
+	
+	/**
+	 * Returns and clears the problems found for a container, including outputs the second run did not produce.
+	 */
+	public List<String> finish(String owner) {
+		List<String> found = problems.getOrDefault(owner, new ArrayList<>());
+		problems.remove(owner);
+		Map<String, Entry> recorded = outputs.remove(owner);
+		if(recorded != null) {
+			for(Map.Entry<String, Entry> e : recorded.entrySet()) {
+				if(!e.getValue().verified) {
+					found.add(String.format("Generated %s only in the first run", e.getKey()));
+				}
+			}
+		}
+		return found;
+	}
+	
+	private void problem(String owner, String problem) {
+		problems.computeIfAbsent(owner, o -> new ArrayList<>()).add(problem);
+	}
+	
+	private static byte[] digest(byte[] contents) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(contents);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private static class Entry {
+		private final byte[] digest;
+		private boolean verified = false;
+		
+		private Entry(byte[] digest) {
+			this.digest = digest;
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package io.github.nuclearfarts.mcap.processor;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Persistent map of generated resource path to content hash, grouped by the owning container. Lets the processor skip
+ * rewriting outputs whose bytes have not changed and find outputs left behind by removed fields.
+ */
+public class OutputManifest {
+	private static final String HEADER = "mcap-output-manifest 1";
+	
+	private final Path file;
+	private final Map<String, Entry> previous = new HashMap<>();
+	private final Map<String, Entry> current = new LinkedHashMap<>();
+	private final Set<String> processedOwners = new HashSet<>();
+	
+	private OutputManifest(Path file) {
+		this.file = file;
+	}
+	
+	public static OutputManifest load(Path file) throws IOException {
+		OutputManifest manifest = new OutputManifest(file);
+		if(Files.isRegularFile(file)) {
+			try(BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				if(!HEADER.equals(r.readLine())) {
+					return manifest;
+				}
+				String line;
+				while((line = r.readLine()) != null) {
+					String[] parts = line.split("\t");
+					if(parts.length == 3) {
+						manifest.previous.put(parts[2], new Entry(parts[1], parts[0]));
+					}
+				}
+			}
+		}
+		return manifest;
+	}
+	
+	/**
+	 * Records an output for this run. Returns true if the previous run produced identical contents for the same path.
+	 */
+	public synchronized boolean record(String owner, String path, CharSequence contents) {
+		processedOwners.add(owner);
+		String hash = hash(contents);
+		current.put(path, new Entry(owner, hash));
+		Entry old = previous.get(path);
+		return old != null && old.hash.equals(hash);
+	}
+	
+	/**
+	 * Takes back the record of an output that could not be written, leaving what the previous run recorded for it.
+	 */
+	public synchronized void discard(String path) {
+		Entry old = previous.get(path);
+		if(old != null) {
+			current.put(path, old);
+		} else {
+			current.remove(path);
+		}
+	}
+	
+	/**
+	 * Returns paths recorded by a previous run that this run no longer produces, either because their container was
+	 * processed without emitting them or because their container no longer exists. Entries of containers that were
+	 * simply not reprocessed are carried over.
+	 */
+	public synchronized List<String> collectStale(Predicate<String> ownerExists) {
+		List<String> stale = new ArrayList<>();
+		for(Map.Entry<String, Entry> e : previous.entrySet()) {
+			String path = e.getKey();
+			Entry old = e.getValue();
+			if(current.containsKey(path)) {
+				continue;
+			}
+			if(processedOwners.contains(old.owner) || !ownerExists.test(old.owner)) {
+				stale.add(path);
+			} else {
+				current.put(path, old);
+			}
+		}
+		stale.sort(null);
+		return stale;
+	}
+	
+	public synchronized void save() throws IOException {
+		Files.createDirectories(file.getParent());
+		try(BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			w.write(HEADER);
+			w.newLine();
+			for(Map.Entry<String, Entry> e : current.entrySet()) {
+				w.write(e.getValue().hash);
+				w.write('\t');
+				w.write(e.getValue().owner);
+				w.write('\t');
+				w.write(e.getKey());
+				w.newLine();
+			}
+		}
+	}
+	
+	public static String pathOf(String pkg, String fileName) {
+		return pkg.isEmpty() ? fileName : pkg.replace('.', '/') + '/' + fileName;
+	}
+	
+	private static String hash(CharSequence contents) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		digest.update(StandardCharsets.UTF_8.encode(CharBuffer.wrap(contents)));
+		StringBuilder hex = new StringBuilder(40);
+		for(byte b : digest.digest()) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+	
+	private static class Entry {
+		private final String owner;
+		private final String hash;
+		
+		private Entry(String owner, String hash) {
+			this.owner = owner;
+			this.hash = hash;
+		}
+	}
+}
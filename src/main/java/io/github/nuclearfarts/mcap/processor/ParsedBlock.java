@@ -1,66 +1,88 @@
 package io.github.nuclearfarts.mcap.processor;
 
+import java.util.List;
 import java.util.function.Consumer;
 
-import javax.lang.model.element.Name;
-import javax.lang.model.element.VariableElement;
-import com.squareup.javapoet.CodeBlock;
+import javax.lang.model.element.Element;
 import io.github.nuclearfarts.mcap.annotation.RegisterBlock;
 
 public class ParsedBlock {
+	private static final ProcessorTemplateType[] TYPES = {ProcessorTemplateType.BLOCKITEM, ProcessorTemplateType.BLOCKSTATE, ProcessorTemplateType.BLOCK, ProcessorTemplateType.LOOT};
+	
 	private final boolean autoBlockItem;
-	private final LoadedTemplate blockItemTemplate, blockStateTemplate, blockModelTemplate, lootTemplate;
-	private final String[] blockItemArgs, blockStateArgs, blockModelArgs, lootArgs;
-	private final Name name;
+	/**
+	 * Bindings indexed like {@link #TYPES}, shared by every block of the container using the same ones.
+	 */
+	private final TemplateBinding[] templates;
+	private final String name;
 	private final String id;
 	private final ParsedFieldRef itemGroup;
-	private final ParsedRegistryContainer container;
+	private final String modId;
+	private final EntryHolder holder;
+	/**
+	 * Data table literals, see {@link ParsedRegistryContainer#parseData}.
+	 */
+	private final String[] data;
 	
-	public ParsedBlock(VariableElement ele, ParsedRegistryContainer container, Consumer<String> errorConsumer) {
-		this.container = container;
-		name = ele.getSimpleName();
+	public ParsedBlock(Element ele, EntryHolder holder, ParsedRegistryContainer container, Consumer<String> errorConsumer) {
+		this.holder = holder;
+		modId = container.getModId();
+		name = ele.getSimpleName().toString();
 		RegisterBlock block = ele.getAnnotation(RegisterBlock.class);
 		itemGroup = container.getItemGroup(block.itemGroup());
 		id = block.value();
+		data = container.parseData(block.data(), container.getBlockTables(), errorConsumer);
 		switch(block.autoBlockItem()) {
 		case TRUE: autoBlockItem = true; break;
 		case FALSE: autoBlockItem = false; break;
 		case NONE: autoBlockItem = container.getAutoBlockItem(); break;
 		default: throw new RuntimeException();
 		}
-		blockItemArgs = container.getArgs(block.blockItemArgs(), ProcessorTemplateType.BLOCKITEM);
-		blockStateArgs = container.getArgs(block.blockStateArgs(), ProcessorTemplateType.BLOCKSTATE);
-		blockModelArgs = container.getArgs(block.modelArgs(), ProcessorTemplateType.BLOCK);
-		lootArgs = container.getArgs(block.lootArgs(), ProcessorTemplateType.LOOT);
-		blockItemTemplate = container.getTemplateWithErrors(ProcessorTemplateType.BLOCKITEM, block.blockItem(), errorConsumer);
-		blockStateTemplate = container.getTemplateWithErrors(ProcessorTemplateType.BLOCKSTATE, block.blockState(), errorConsumer);
-		blockModelTemplate = container.getTemplateWithErrors(ProcessorTemplateType.BLOCK, block.model(), errorConsumer);
-		lootTemplate = container.getTemplateWithErrors(ProcessorTemplateType.LOOT, block.loot(), errorConsumer);
+		templates = container.intern(new TemplateBinding[] {
+				bind(container, ProcessorTemplateType.BLOCKITEM, block.blockItem(), block.blockItemArgs(), errorConsumer),
+				bind(container, ProcessorTemplateType.BLOCKSTATE, block.blockState(), block.blockStateArgs(), errorConsumer),
+				bind(container, ProcessorTemplateType.BLOCK, block.model(), block.modelArgs(), errorConsumer),
+				bind(container, ProcessorTemplateType.LOOT, block.loot(), block.lootArgs(), errorConsumer)
+		});
 	}
 	
-	public void appendTo(CodeBlock.Builder builder) {
-		builder.addStatement("registerBlock($1T.$2L, $3S)", container.getOwnerName(), name, id);
-		if(autoBlockItem) {
-			if(itemGroup != null) {
-				builder.addStatement("registerItem(createBlockItem($1T.$2L, $3T.$4L), $5S)", container.getOwnerName(), name, itemGroup.getTargetType(), itemGroup.getTargetName(), id);
-			} else {
-				builder.addStatement("registerItem(createBlockItem($1T.$2L), $3S)", container.getOwnerName(), name, id);
-			}
-		}
+	private static TemplateBinding bind(ParsedRegistryContainer container, ProcessorTemplateType type, String template, String[] args, Consumer<String> errorConsumer) {
+		String[] resolvedArgs = container.getArgs(args, type);
+		return container.bind(container.checkArgs(type, container.getTemplateWithErrors(type, template, errorConsumer), resolvedArgs, errorConsumer), resolvedArgs);
 	}
 	
-	public void genResources(ResourceCreator rc) {
-		if(blockItemTemplate != null) {
-			rc.createResource(ProcessorTemplateType.BLOCKITEM.getPackage(container.getModId()), id + ".json", blockItemTemplate.with(id, blockItemArgs));
-		}
-		if(blockStateTemplate != null) {
-			rc.createResource(ProcessorTemplateType.BLOCKSTATE.getPackage(container.getModId()), id + ".json", blockStateTemplate.with(id, blockStateArgs));
-		}
-		if(blockModelTemplate != null) {
-			rc.createResource(ProcessorTemplateType.BLOCK.getPackage(container.getModId()), id + ".json", blockModelTemplate.with(id, blockModelArgs));
-		}
-		if(lootTemplate != null) {
-			rc.createResource(ProcessorTemplateType.LOOT.getPackage(container.getModId()), id + ".json", lootTemplate.with(id, lootArgs));
+	public String getFieldName() {
+		return name;
+	}
+	
+	public EntryHolder getHolder() {
+		return holder;
+	}
+	
+	public String getId() {
+		return id;
+	}
+	
+	public boolean hasAutoBlockItem() {
+		return autoBlockItem;
+	}
+	
+	public ParsedFieldRef getItemGroup() {
+		return itemGroup;
+	}
+	
+	/**
+	 * @return the literal for the container's block table at the given index, or null for its default
+	 */
+	public String getData(int table) {
+		return table < data.length ? data[table] : null;
+	}
+	
+	public void collectJobs(List<ResourceJob> jobs) {
+		for(int i = 0; i < TYPES.length; i++) {
+			if(templates[i] != null) {
+				jobs.add(templates[i].toJob(TYPES[i], modId, id, name));
+			}
 		}
 	}
 }
@@ -0,0 +1,111 @@
+package io.github.nuclearfarts.mcap.processor;
+
+import java.util.Locale;
+import java.util.function.Consumer;
+
+import com.squareup.javapoet.TypeName;
+
+import io.github.nuclearfarts.mcap.DataType;
+import io.github.nuclearfarts.mcap.annotation.DataTable;
+
+/**
+ * A container's data table, with values parsed into Java literals of its type.
+ */
+public class ParsedDataTable {
+	private final String name;
+	private final DataType type;
+	private final String defaultValue;
+	
+	public ParsedDataTable(DataTable table, Consumer<String> errorConsumer) {
+		name = table.name();
+		type = table.type();
+		String parsed = table.defaultValue().isEmpty() ? null : literal(table.defaultValue(), errorConsumer);
+		defaultValue = parsed == null || isZero(parse(table.defaultValue())) ? null : parsed;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public TypeName getTypeName() {
+		switch(type) {
+		case BOOLEAN: return TypeName.BOOLEAN;
+		case BYTE: return TypeName.BYTE;
+		case SHORT: return TypeName.SHORT;
+		case INT: return TypeName.INT;
+		case LONG: return TypeName.LONG;
+		case FLOAT: return TypeName.FLOAT;
+		case DOUBLE: return TypeName.DOUBLE;
+		default: throw new RuntimeException();
+		}
+	}
+	
+	/**
+	 * @return the literal the array is filled with, or null if the default is the array's own zero or false
+	 */
+	public String getDefault() {
+		return defaultValue;
+	}
+	
+	/**
+	 * Returns a value as a literal assignable to an element, or reports it and returns null if it isn't one.
+	 */
+	public String literal(String value, Consumer<String> errorConsumer) {
+		Object parsed;
+		try {
+			parsed = parse(value);
+		} catch (NumberFormatException e) {
+			errorConsumer.accept(String.format("Invalid %s value for data table %s: %s", type.toString().toLowerCase(Locale.ROOT), name, value));
+			return null;
+		}
+		switch(type) {
+		case BYTE: return "(byte) " + parsed;
+		case SHORT: return "(short) " + parsed;
+		case LONG: return parsed + "L";
+		case FLOAT: return parsed + "f";
+		default: return parsed.toString();
+		}
+	}
+	
+	private Object parse(String value) {
+		value = value.trim();
+		switch(type) {
+		case BOOLEAN:
+			if(!value.equals("true") && !value.equals("false")) {
+				throw new NumberFormatException(value);
+			}
+			return Boolean.valueOf(value);
+		case BYTE: return Byte.parseByte(value);
+		case SHORT: return Short.parseShort(value);
+		case INT: return Integer.parseInt(value);
+		case LONG: return Long.parseLong(value);
+		case FLOAT:
+			float f = Float.parseFloat(value);
+			if(Float.isNaN(f) || Float.isInfinite(f)) {
+				throw new NumberFormatException(value);
+			}
+			return f;
+		case DOUBLE:
+			double d = Double.parseDouble(value);
+			if(Double.isNaN(d) || Double.isInfinite(d)) {
+				throw new NumberFormatException(value);
+			}
+			return d;
+		default: throw new RuntimeException();
+		}
+	}
+	
+	/**
+	 * Whether a value is what a new array already holds. Negative zero isn't.
+	 */
+	private static boolean isZero(Object value) {
+		if(value instanceof Boolean) {
+			return !(Boolean) value;
+		} else if(value instanceof Float) {
+			return Float.floatToRawIntBits((Float) value) == 0;
+		} else if(value instanceof Double) {
+			return Double.doubleToRawLongBits((Double) value) == 0;
+		}
+		return ((Number) value).longValue() == 0;
+	}
+}
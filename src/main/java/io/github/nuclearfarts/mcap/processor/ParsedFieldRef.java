@@ -1,15 +1,15 @@
 package io.github.nuclearfarts.mcap.processor;
 
-import javax.lang.model.type.TypeMirror;
+import com.squareup.javapoet.TypeName;
 
 public class ParsedFieldRef {
-	private final TypeMirror targetType;
+	private final TypeName targetType;
 	private final String targetName;
-	public ParsedFieldRef(TypeMirror targetType, String targetName) {
+	public ParsedFieldRef(TypeName targetType, String targetName) {
 		this.targetType = targetType;
 		this.targetName = targetName;
 	}
-	public TypeMirror getTargetType() {
+	public TypeName getTargetType() {
 		return targetType;
 	}
 	public String getTargetName() {
@@ -1,37 +1,53 @@
 package io.github.nuclearfarts.mcap.processor;
 
+import java.util.List;
 import java.util.function.Consumer;
 
-import javax.lang.model.element.Name;
-import javax.lang.model.element.VariableElement;
-
-import com.squareup.javapoet.CodeBlock;
+import javax.lang.model.element.Element;
 
 import io.github.nuclearfarts.mcap.annotation.RegisterItem;
 
 public class ParsedItem {
-	private final LoadedTemplate template;
-	private final String[] args;
+	private final TemplateBinding model;
 	private final String name;
-	private final Name fieldName;
-	private final ParsedRegistryContainer container;
+	private final String fieldName;
+	private final String modId;
+	private final EntryHolder holder;
+	private final String[] data;
 	
-	public ParsedItem(VariableElement ele, ParsedRegistryContainer container, Consumer<String> errorConsumer) {
-		this.container = container;
-		fieldName = ele.getSimpleName();
+	public ParsedItem(Element ele, EntryHolder holder, ParsedRegistryContainer container, Consumer<String> errorConsumer) {
+		this.holder = holder;
+		modId = container.getModId();
+		fieldName = ele.getSimpleName().toString();
 		RegisterItem item = ele.getAnnotation(RegisterItem.class);
 		name = item.value();
-		args = container.getArgs(item.modelArgs(), ProcessorTemplateType.ITEM);
-		template = container.getTemplateWithErrors(ProcessorTemplateType.ITEM, item.model(), errorConsumer);
+		data = container.parseData(item.data(), container.getItemTables(), errorConsumer);
+		String[] args = container.getArgs(item.modelArgs(), ProcessorTemplateType.ITEM);
+		model = container.bind(container.checkArgs(ProcessorTemplateType.ITEM, container.getTemplateWithErrors(ProcessorTemplateType.ITEM, item.model(), errorConsumer), args, errorConsumer), args);
+	}
+	
+	public String getFieldName() {
+		return fieldName;
+	}
+	
+	public EntryHolder getHolder() {
+		return holder;
+	}
+	
+	public String getId() {
+		return name;
 	}
 	
-	public void appendTo(CodeBlock.Builder builder) {
-		builder.addStatement("registerItem($1T.$2L, $3S)", container.getOwnerName(), fieldName, name);
+	/**
+	 * @return the literal for the container's item table at the given index, or null for its default
+	 */
+	public String getData(int table) {
+		return table < data.length ? data[table] : null;
 	}
 	
-	public void genResources(ResourceCreator rc) {
-		if(template != null) {
-			rc.createResource(ProcessorTemplateType.ITEM.getPackage(container.getModId()), name + ".json", template.with(name, args));
+	public void collectJobs(List<ResourceJob> jobs) {
+		if(model != null) {
+			jobs.add(model.toJob(ProcessorTemplateType.ITEM, modId, name, fieldName));
 		}
 	}
 }
@@ -1,19 +1,32 @@
 package io.github.nuclearfarts.mcap.processor;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
+
+import javax.lang.model.SourceVersion;
+
 import com.squareup.javapoet.TypeName;
 
 import io.github.nuclearfarts.mcap.TemplateType;
+import io.github.nuclearfarts.mcap.annotation.DataTable;
 import io.github.nuclearfarts.mcap.annotation.FieldRef;
 import io.github.nuclearfarts.mcap.annotation.RegistryContainer;
 import io.github.nuclearfarts.mcap.annotation.Template;
 
 public class ParsedRegistryContainer {
+	private static final String[] NO_DATA = {};
+	
 	private final Map<String, LoadedTemplate> itemTemplates = new HashMap<>();
 	private final Map<String, LoadedTemplate> blockTemplates = new HashMap<>();
 	private final Map<String, LoadedTemplate> blockStateTemplates = new HashMap<>();
@@ -24,10 +37,15 @@ public class ParsedRegistryContainer {
 	private final Map<ProcessorTemplateType, LoadedTemplate> defaultTemplates = new EnumMap<>(ProcessorTemplateType.class);
 	//private final String[] itemArgs, blockItemArgs, blockArgs, lootArgs, blockStateArgs;
 	private final Map<ProcessorTemplateType, String[]> defaultArgs = new EnumMap<>(ProcessorTemplateType.class);
+	private final Set<ProcessorTemplateType> invalidDefaults = EnumSet.noneOf(ProcessorTemplateType.class);
 	private final String modId;
 	private final ParsedFieldRef itemGroup;
 	private final Function<FieldRef, ParsedFieldRef> fieldRefParser;
 	private final TypeName ownerName;
+	private final Map<LoadedTemplate, Map<List<String>, TemplateBinding>> bindings = new HashMap<>();
+	private final Map<List<TemplateBinding>, TemplateBinding[]> bindingSets = new HashMap<>();
+	private final List<ParsedDataTable> blockTables;
+	private final List<ParsedDataTable> itemTables;
 	
 	public ParsedRegistryContainer(RegistryContainer c, TemplateLoader tLoader, TypeName ownerName, Consumer<String> errorConsumer, Function<FieldRef, ParsedFieldRef> fieldRefParser) {
 		itemGroup = fieldRefParser.apply(c.itemGroup());
@@ -40,14 +58,14 @@ public class ParsedRegistryContainer {
 		templates.put(TemplateType.BLOCKSTATE, blockStateTemplates);
 		templates.put(TemplateType.LOOT, lootTemplates);
 		try {
-			loadDefaultTemplates(templates, modId);
-		} catch (IOException e1) {
+			loadDefaultTemplates(templates);
+		} catch (IOException | IllegalArgumentException e1) {
 			errorConsumer.accept(String.format("Error loading default templates: %s: %s", e1.getClass(), e1.getLocalizedMessage()));
 		}
 		for(Template t : c.templates()) {
 			try {
-				templates.get(t.type()).put(t.name(), tLoader.load(modId, t.file()));
-			} catch (IOException e) {
+				templates.get(t.type()).put(t.name(), tLoader.load(t.file()));
+			} catch (IOException | IllegalArgumentException e) {
 				errorConsumer.accept(String.format("Error loading %s for template %s: %s: %s", t.file(), t.name(), e.getClass(), e.getLocalizedMessage()));
 			}
 		}
@@ -71,15 +89,86 @@ public class ParsedRegistryContainer {
 		defaultTemplates.put(ProcessorTemplateType.LOOT, c.loot().isEmpty() ? null : getTemplateWithErrors(ProcessorTemplateType.LOOT, c.loot(), errorConsumer));
 		defaultTemplates.put(ProcessorTemplateType.BLOCK, c.block().isEmpty() ? null : getTemplateWithErrors(ProcessorTemplateType.BLOCK, c.block(), errorConsumer));
 		defaultTemplates.put(ProcessorTemplateType.BLOCKSTATE, c.blockState().isEmpty() ? null : getTemplateWithErrors(ProcessorTemplateType.BLOCKSTATE, c.blockState(), errorConsumer));
+		for(ProcessorTemplateType type : ProcessorTemplateType.values()) {
+			LoadedTemplate template = defaultTemplates.get(type);
+			if(template != null && template.getArgCount() > defaultArgs.get(type).length) {
+				errorConsumer.accept(String.format("Default %s template requires %d args but %d default args were given", type.getEquivalent().toString(), template.getArgCount(), defaultArgs.get(type).length));
+				invalidDefaults.add(type);
+			}
+		}
+		Set<String> tableNames = new HashSet<>();
+		blockTables = parseTables(c.blockData(), tableNames, errorConsumer);
+		itemTables = parseTables(c.itemData(), tableNames, errorConsumer);
+	}
+	
+	private static List<ParsedDataTable> parseTables(DataTable[] tables, Set<String> names, Consumer<String> errorConsumer) {
+		if(tables.length == 0) {
+			return Collections.emptyList();
+		}
+		List<ParsedDataTable> parsed = new ArrayList<>(tables.length);
+		for(DataTable table : tables) {
+			if(!SourceVersion.isName(table.name()) || RegistrarGenerator.isReserved(table.name())) {
+				errorConsumer.accept(String.format("Data table name %s is not a valid or available field name", table.name()));
+			} else if(!names.add(table.name())) {
+				errorConsumer.accept(String.format("Duplicate data table %s", table.name()));
+			} else {
+				parsed.add(new ParsedDataTable(table, errorConsumer));
+			}
+		}
+		return parsed;
+	}
+	
+	/**
+	 * Parses an entry's <code>name=value</code> data into literals indexed like the tables, null where the table's
+	 * default applies. Entries without data share one empty array.
+	 */
+	public String[] parseData(String[] data, List<ParsedDataTable> tables, Consumer<String> errorConsumer) {
+		if(data.length == 0) {
+			return NO_DATA;
+		}
+		String[] literals = new String[tables.size()];
+		for(String entry : data) {
+			int eq = entry.indexOf('=');
+			String name = eq < 0 ? entry : entry.substring(0, eq).trim();
+			int table = 0;
+			while(table < tables.size() && !tables.get(table).getName().equals(name)) {
+				table++;
+			}
+			if(eq < 0) {
+				errorConsumer.accept(String.format("Data %s must be given as name=value", entry));
+			} else if(table == tables.size()) {
+				errorConsumer.accept(String.format("No data table %s is declared for this kind of entry", name));
+			} else if(literals[table] != null) {
+				errorConsumer.accept(String.format("Data table %s is set more than once", name));
+			} else {
+				literals[table] = tables.get(table).literal(entry.substring(eq + 1), errorConsumer);
+			}
+		}
+		return literals;
 	}
 	
-	private static void loadDefaultTemplates(Map<TemplateType, Map<String, LoadedTemplate>> templates, String modId) throws IOException {
-		templates.get(TemplateType.ITEM).put("basic", LoadedTemplate.loadBuiltin("itemmodel", modId));
-		templates.get(TemplateType.ITEM).put("block", LoadedTemplate.loadBuiltin("blockitem", modId));
-		templates.get(TemplateType.BLOCK).put("basic", LoadedTemplate.loadBuiltin("blockmodel", modId));
-		templates.get(TemplateType.BLOCKSTATE).put("basic", LoadedTemplate.loadBuiltin("blockstate", modId));
-		templates.get(TemplateType.LOOT).put("basic", LoadedTemplate.loadBuiltin("loottable", modId));
-		templates.get(TemplateType.LOOT).put("silk", LoadedTemplate.loadBuiltin("silktable", modId));
+	public List<ParsedDataTable> getBlockTables() {
+		return blockTables;
+	}
+	
+	public List<ParsedDataTable> getItemTables() {
+		return itemTables;
+	}
+	
+	/**
+	 * Whether the registrar has ordinals regardless of the <code>mcap.ordinals</code> option.
+	 */
+	public boolean hasDataTables() {
+		return !blockTables.isEmpty() || !itemTables.isEmpty();
+	}
+	
+	private static void loadDefaultTemplates(Map<TemplateType, Map<String, LoadedTemplate>> templates) throws IOException {
+		templates.get(TemplateType.ITEM).put("basic", TemplateLoader.loadBuiltin("itemmodel"));
+		templates.get(TemplateType.ITEM).put("block", TemplateLoader.loadBuiltin("blockitem"));
+		templates.get(TemplateType.BLOCK).put("basic", TemplateLoader.loadBuiltin("blockmodel"));
+		templates.get(TemplateType.BLOCKSTATE).put("basic", TemplateLoader.loadBuiltin("blockstate"));
+		templates.get(TemplateType.LOOT).put("basic", TemplateLoader.loadBuiltin("loottable"));
+		templates.get(TemplateType.LOOT).put("silk", TemplateLoader.loadBuiltin("silktable"));
 	}
 	
 	public LoadedTemplate getTemplate(ProcessorTemplateType type, String name) {
@@ -97,6 +186,38 @@ public class ParsedRegistryContainer {
 		return t;
 	}
 	
+	/**
+	 * Returns the template if it can be rendered with the given args, otherwise reports the mismatch and returns null.
+	 * An inherited default template with the default args was already checked, and reported once, by the constructor.
+	 */
+	public LoadedTemplate checkArgs(ProcessorTemplateType type, LoadedTemplate template, String[] args, Consumer<String> errorConsumer) {
+		if(template == defaultTemplates.get(type) && args == defaultArgs.get(type)) {
+			return invalidDefaults.contains(type) ? null : template;
+		}
+		if(template != null && template.getArgCount() > args.length) {
+			errorConsumer.accept(String.format("%s template requires %d args but %d were given", type.getEquivalent().toString(), template.getArgCount(), args.length));
+			return null;
+		}
+		return template;
+	}
+	
+	/**
+	 * Returns the shared binding of a template and args, or null if there is no template.
+	 */
+	public TemplateBinding bind(LoadedTemplate template, String[] args) {
+		if(template == null) {
+			return null;
+		}
+		return bindings.computeIfAbsent(template, t -> new HashMap<>()).computeIfAbsent(Arrays.asList(args), a -> new TemplateBinding(template, args));
+	}
+	
+	/**
+	 * Returns the shared instance of a set of bindings. Bindings are interned, so comparing them by identity suffices.
+	 */
+	public TemplateBinding[] intern(TemplateBinding[] set) {
+		return bindingSets.computeIfAbsent(Arrays.asList(set), k -> set);
+	}
+	
 	public String[] getArgs(String[] args, ProcessorTemplateType type) {
 		if(args.length == 0) {
 			return defaultArgs.get(type);
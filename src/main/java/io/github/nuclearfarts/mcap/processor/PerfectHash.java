@@ -0,0 +1,196 @@
+package io.github.nuclearfarts.mcap.processor;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collision-free hash of a fixed set of strings, built at compile time for the generated id lookups. Keys are hashed
+ * by {@link #hash}, which the generated code can also compute over any <code>CharSequence</code> without allocating,
+ * and spread over buckets by {@link #mix}. Each bucket then gets the first seed that places all of its keys in distinct
+ * free slots (hash and displace), so a lookup is one seed read, one slot read and a compare.
+ * <p>
+ * The key hash is <code>String.hashCode()</code> whenever that tells the keys apart, so lookups by <code>String</code>
+ * can use its cached hash. Short ids easily share a hash code though, and then the same polynomial is taken with the
+ * first larger odd multiplier that separates them; from 129 on, ids of up to four ASCII characters can't collide at
+ * all. Only duplicate keys can't be hashed apart. Multipliers and seeds are searched in order, so the same keys always
+ * produce the same tables.
+ */
+public final class PerfectHash {
+	public static final int BUCKET_SEED = 0x2545F491;
+	public static final int MULTIPLIER = 0x9E3779B9;
+	public static final int FINALIZER = 0x85EBCA6B;
+	/** Seeds are stored as chars by the generated code. */
+	private static final int MAX_SEED = Character.MAX_VALUE;
+	public static final int STRING_MULTIPLIER = 31;
+	private static final int MAX_HASH_MULTIPLIER = 0xFFFF;
+	private static final int KEYS_PER_BUCKET = 4;
+	/** Keeps the generated seed string within the 64KB constant limit. */
+	public static final int MAX_KEYS = 1 << 16;
+	
+	private final int hashMultiplier;
+	private final char[] seeds;
+	private final int[] slots;
+	private final int tableSize;
+	
+	private PerfectHash(int hashMultiplier, char[] seeds, int[] slots, int tableSize) {
+		this.hashMultiplier = hashMultiplier;
+		this.seeds = seeds;
+		this.slots = slots;
+		this.tableSize = tableSize;
+	}
+	
+	/**
+	 * @return the hash, or null if keys are duplicated or there are more than {@link #MAX_KEYS}
+	 */
+	public static PerfectHash build(List<String> keys) {
+		if(keys.size() > MAX_KEYS || new HashSet<>(keys).size() != keys.size()) {
+			return null;
+		}
+		int buckets = powerOfTwo((keys.size() + KEYS_PER_BUCKET - 1) / KEYS_PER_BUCKET);
+		for(int multiplier = STRING_MULTIPLIER; multiplier <= MAX_HASH_MULTIPLIER; multiplier += 2) {
+			int[] hashes = hashes(keys, multiplier);
+			if(hashes != null) {
+				// a quarter of the slots spare keeps the seed search short, doubling only as a last resort
+				for(int tableSize = powerOfTwo(hashes.length + hashes.length / 4), attempt = 0; attempt < 3; tableSize <<= 1, attempt++) {
+					PerfectHash hash = tryBuild(multiplier, hashes, buckets, tableSize);
+					if(hash != null) {
+						return hash;
+					}
+				}
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * @return the keys' hashes under a multiplier, or null if two of them are equal
+	 */
+	private static int[] hashes(List<String> keys, int multiplier) {
+		int[] hashes = new int[keys.size()];
+		Set<Integer> unique = new HashSet<>();
+		for(int i = 0; i < hashes.length; i++) {
+			hashes[i] = hash(keys.get(i), multiplier);
+			if(!unique.add(hashes[i])) {
+				return null;
+			}
+		}
+		return hashes;
+	}
+	
+	private static PerfectHash tryBuild(int hashMultiplier, int[] hashes, int bucketCount, int tableSize) {
+		List<List<Integer>> buckets = new ArrayList<>(bucketCount);
+		for(int b = 0; b < bucketCount; b++) {
+			buckets.add(new ArrayList<>());
+		}
+		for(int i = 0; i < hashes.length; i++) {
+			buckets.get(mix(hashes[i], BUCKET_SEED) & (bucketCount - 1)).add(i);
+		}
+		List<Integer> order = new ArrayList<>(bucketCount);
+		for(int b = 0; b < bucketCount; b++) {
+			order.add(b);
+		}
+		// fullest buckets first, while most slots are still free; ties keep bucket order
+		order.sort((a, b) -> buckets.get(b).size() - buckets.get(a).size());
+		
+		char[] seeds = new char[bucketCount];
+		int[] slots = new int[hashes.length];
+		boolean[] used = new boolean[tableSize];
+		int[] candidate = new int[hashes.length];
+		for(int b : order) {
+			List<Integer> bucket = buckets.get(b);
+			if(bucket.isEmpty()) {
+				continue;
+			}
+			int seed = 1;
+			for(; seed <= MAX_SEED; seed++) {
+				if(place(hashes, bucket, seed, used, candidate, tableSize)) {
+					break;
+				}
+			}
+			if(seed > MAX_SEED) {
+				return null;
+			}
+			seeds[b] = (char) seed;
+			for(int k = 0; k < bucket.size(); k++) {
+				used[candidate[k]] = true;
+				slots[bucket.get(k)] = candidate[k];
+			}
+		}
+		return new PerfectHash(hashMultiplier, seeds, slots, tableSize);
+	}
+	
+	/**
+	 * Computes the bucket's slots under a seed into <code>candidate</code>, returning whether they are all free and distinct.
+	 */
+	private static boolean place(int[] hashes, List<Integer> bucket, int seed, boolean[] used, int[] candidate, int tableSize) {
+		for(int k = 0; k < bucket.size(); k++) {
+			int slot = mix(hashes[bucket.get(k)], seed) & (tableSize - 1);
+			if(used[slot]) {
+				return false;
+			}
+			for(int j = 0; j < k; j++) {
+				if(candidate[j] == slot) {
+					return false;
+				}
+			}
+			candidate[k] = slot;
+		}
+		return true;
+	}
+	
+	/**
+	 * The key hash, which the generated lookup repeats exactly. {@link #STRING_MULTIPLIER} gives
+	 * <code>String.hashCode()</code>.
+	 */
+	public static int hash(CharSequence key, int multiplier) {
+		int hash = 0;
+		for(int i = 0; i < key.length(); i++) {
+			hash = multiplier * hash + key.charAt(i);
+		}
+		return hash;
+	}
+	
+	/**
+	 * The mixing function, which the generated lookup repeats exactly.
+	 */
+	public static int mix(int hash, int seed) {
+		int h = (hash ^ seed) * MULTIPLIER;
+		h ^= h >>> 16;
+		h *= FINALIZER;
+		return h ^ h >>> 13;
+	}
+	
+	private static int powerOfTwo(int n) {
+		return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+	}
+	
+	/**
+	 * Multiplier the keys are hashed with by {@link #hash}.
+	 */
+	public int getHashMultiplier() {
+		return hashMultiplier;
+	}
+	
+	/**
+	 * Seed per bucket, indexed by <code>mix(hash, BUCKET_SEED) & (seeds.length - 1)</code>. Empty buckets have seed 0.
+	 */
+	public char[] getSeeds() {
+		return seeds;
+	}
+	
+	/**
+	 * @return the slot of the key at the given index
+	 */
+	public int getSlot(int key) {
+		return slots[key];
+	}
+	
+	/**
+	 * Number of slots, a power of two.
+	 */
+	public int getTableSize() {
+		return tableSize;
+	}
+}
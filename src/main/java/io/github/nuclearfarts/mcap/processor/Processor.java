@@ -1,18 +1,35 @@
 package io.github.nuclearfarts.mcap.processor;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Writer;
 import java.lang.annotation.Annotation;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.Filer;
 import javax.annotation.processing.Messager;
@@ -20,34 +37,39 @@ import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedOptions;
 import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
-import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
+import javax.tools.FileObject;
 import javax.tools.JavaFileObject;
 import javax.tools.StandardLocation;
 
-import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.ClassName;
 import com.squareup.javapoet.JavaFile;
-import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 
+import io.github.nuclearfarts.mcap.annotation.BlockRegistryBatchCallback;
 import io.github.nuclearfarts.mcap.annotation.BlockRegistryCallback;
-import io.github.nuclearfarts.mcap.annotation.FieldRef;
+import io.github.nuclearfarts.mcap.annotation.ItemRegistryBatchCallback;
 import io.github.nuclearfarts.mcap.annotation.ItemRegistryCallback;
 import io.github.nuclearfarts.mcap.annotation.RegisterBlock;
 import io.github.nuclearfarts.mcap.annotation.RegisterItem;
 import io.github.nuclearfarts.mcap.annotation.RegistryContainer;
 
-@SupportedOptions({"buildDir", "isDev"})
+@SupportedOptions({"buildDir", "isDev", "mcap.parallelism", "mcap.pipeline", "mcap.outputDir", "mcap.identifierConstants", "mcap.profile", "mcap.bundle", "mcap.minifyJson", "mcap.assetManifest", "mcap.aggregate", "mcap.persistModel", "mcap.metrics", "mcap.registrarOutput", "mcap.idLookup", "mcap.ordinals", "mcap.templates", "mcap.selfCheck"})
 public class Processor extends AbstractProcessor {
 	private static final Set<String> ANNOTATIONS = new HashSet<>();
 	
@@ -59,7 +81,13 @@ public class Processor extends AbstractProcessor {
 	private TypeMirror itemMirror;
 	private TypeMirror blockMirror;
 	private TypeMirror identifierMirror;
-	private TypeMirror voidMirror;
+	private TypeMirror supplierMirror;
+	private TypeMirror[] blockBatchArrayParams;
+	private TypeMirror[] blockBatchListParams;
+	private TypeMirror[] itemBatchArrayParams;
+	private TypeMirror[] itemBatchListParams;
+	
+	private FieldRefParser fieldRefParser;
 	
 	private TypeName itemName;
 	private TypeName blockName;
@@ -68,71 +96,373 @@ public class Processor extends AbstractProcessor {
 	private TypeName registryName;
 	private TypeName itemGroupName;
 	
+	private RegistrarGenerator registrarGenerator;
+	
 	private Path projectDir;
+	private Path templatesDir;
 	
 	private boolean isDev = false;
+	private boolean devHackWritten = false;
+	private boolean identifierConstants = false;
+	private boolean idLookup = false;
+	private boolean ordinals = false;
+	
+	private OutputManifest manifest;
+	private boolean resourceWriteFailed = false;
+	private DirectResourceWriter directWriter;
+	private boolean bundle = false;
+	private boolean minifyJson = false;
+	private AssetManifestGenerator assetManifestGenerator;
+	private boolean persistModel = false;
+	private RegistrarGenerator.Metrics metrics = RegistrarGenerator.Metrics.NONE;
+	private RegistrarClassWriter registrarClassWriter;
+	private ClassName aggregateName;
+	private final List<AggregatedContainer> aggregated = new ArrayList<>();
+	private boolean aggregateWritten = false;
+	private final Map<String, ResourcePackBundle> bundles = new LinkedHashMap<>();
+	
+	private ProcessorProfiler profiler = ProcessorProfiler.DISABLED;
+	private Path profileFile;
+	
+	private ForkJoinPool renderPool;
+	private ExecutorService pipelineExecutor;
+	private boolean pipeline = false;
+	private final List<PendingAssets> pendingAssets = new ArrayList<>();
+	
+	private OutputCheck selfCheck;
+	private boolean secondRun = false;
 	
 	public void init(ProcessingEnvironment env) {
-		projectDir = Paths.get(env.getOptions().get("buildDir"));
+		String buildDir = env.getOptions().get("buildDir");
+		projectDir = buildDir == null ? null : Paths.get(buildDir);
+		String templates = env.getOptions().get("mcap.templates");
+		templatesDir = templates != null ? Paths.get(templates) : projectDir == null ? null : projectDir.resolve("templates");
 		isDev = "true".equals(env.getOptions().get("isDev"));
+		identifierConstants = "true".equals(env.getOptions().get("mcap.identifierConstants"));
+		idLookup = "true".equals(env.getOptions().get("mcap.idLookup"));
+		ordinals = "true".equals(env.getOptions().get("mcap.ordinals"));
 		msg = env.getMessager();
+		String profile = env.getOptions().get("mcap.profile");
+		if(profile != null) {
+			if(!profile.isEmpty() && !"true".equals(profile)) {
+				profileFile = Paths.get(profile);
+			} else if(projectDir != null) {
+				profileFile = projectDir.resolve("mcap").resolve("profile-trace.json");
+			} else {
+				msg.printMessage(Diagnostic.Kind.WARNING, "Not profiling, mcap.profile needs a trace path when buildDir is not set");
+			}
+			if(profileFile != null) {
+				profiler = ProcessorProfiler.create();
+			}
+		}
+		String parallelism = env.getOptions().get("mcap.parallelism");
+		if(parallelism != null) {
+			try {
+				int threads = Integer.parseInt(parallelism);
+				if(threads > 1) {
+					renderPool = new ForkJoinPool(threads);
+				}
+			} catch (NumberFormatException e) {
+				msg.printMessage(Diagnostic.Kind.WARNING, "Ignoring invalid mcap.parallelism: " + parallelism);
+			}
+		}
+		pipeline = "true".equals(env.getOptions().get("mcap.pipeline"));
+		if("true".equals(env.getOptions().get("mcap.selfCheck"))) {
+			String outputDir = env.getOptions().get("mcap.outputDir");
+			selfCheck = new OutputCheck(projectDir, templatesDir, outputDir == null ? null : Paths.get(outputDir));
+			// each container is checked as soon as it is processed, before pipelined assets would be written. Both runs
+			// share this process, so this finds nondeterminism within one compilation, not between machines
+			pipeline = false;
+		}
+		// the bundle is a tooling artifact next to the loose files, the game only loads the loose files from the jar
+		bundle = "true".equals(env.getOptions().get("mcap.bundle"));
+		if(bundle && projectDir == null) {
+			msg.printMessage(Diagnostic.Kind.WARNING, "Not bundling generated assets, mcap.bundle needs buildDir");
+			bundle = false;
+		}
+		minifyJson = "true".equals(env.getOptions().get("mcap.minifyJson"));
+		boolean assetManifest = "true".equals(env.getOptions().get("mcap.assetManifest"));
+		persistModel = "true".equals(env.getOptions().get("mcap.persistModel"));
+		if(persistModel && projectDir == null) {
+			msg.printMessage(Diagnostic.Kind.WARNING, "Not persisting container models, mcap.persistModel needs buildDir");
+			persistModel = false;
+		}
+		String metricsOption = env.getOptions().get("mcap.metrics");
+		if("jmx".equals(metricsOption)) {
+			metrics = RegistrarGenerator.Metrics.JMX;
+		} else if("true".equals(metricsOption)) {
+			metrics = RegistrarGenerator.Metrics.STATS;
+		}
+		String registrarOutput = env.getOptions().get("mcap.registrarOutput");
+		boolean registrarClass = "class".equals(registrarOutput);
+		if("both".equals(registrarOutput)) {
+			// nothing could check the side-by-side class against the source registrar, so it only cost build time
+			msg.printMessage(Diagnostic.Kind.WARNING, "mcap.registrarOutput=both is no longer supported, registrars are written as source");
+		} else if(registrarOutput != null && !registrarClass && !"source".equals(registrarOutput)) {
+			msg.printMessage(Diagnostic.Kind.WARNING, "Ignoring invalid mcap.registrarOutput: " + registrarOutput);
+		}
+		String aggregate = env.getOptions().get("mcap.aggregate");
+		if(aggregate != null) {
+			try {
+				aggregateName = ClassName.bestGuess(aggregate);
+			} catch (IllegalArgumentException e) {
+				msg.printMessage(Diagnostic.Kind.ERROR, "Invalid mcap.aggregate class name: " + aggregate);
+			}
+		}
+		if(pipeline && renderPool == null) {
+			pipelineExecutor = Executors.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(r, "mcap-asset-pipeline");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		String outputDir = env.getOptions().get("mcap.outputDir");
+		if(outputDir != null) {
+			try {
+				directWriter = new DirectResourceWriter(Paths.get(outputDir));
+			} catch (IOException e) {
+				msg.printMessage(Diagnostic.Kind.ERROR, "Could not prepare mcap.outputDir: " + e);
+			}
+		}
+		if(projectDir != null) {
+			try {
+				manifest = OutputManifest.load(projectDir.resolve("mcap").resolve("output-manifest"));
+			} catch (IOException e) {
+				msg.printMessage(Diagnostic.Kind.WARNING, "Could not read output manifest, all resources will be rewritten: " + e);
+			}
+		}
 		filer = env.getFiler();
+		ProcessorProfiler.Span initSpan = profiler.begin("init", null);
+		resolveSymbols(env);
+		if(registrarClass) {
+			registrarClassWriter = createRegistrarClassWriter();
+		}
+		initSpan.end();
+		if(assetManifest) {
+			assetManifestGenerator = new AssetManifestGenerator(identifierName);
+		}
+	}
+	
+	private void resolveSymbols(ProcessingEnvironment env) {
 		elements = env.getElementUtils();
 		types = env.getTypeUtils();
 		itemMirror = elements.getTypeElement("net.minecraft.item.Item").asType();
 		blockMirror = elements.getTypeElement("net.minecraft.block.Block").asType();
 		identifierMirror = elements.getTypeElement("net.minecraft.util.Identifier").asType();
-		voidMirror = elements.getTypeElement("java.lang.Void").asType();
+		supplierMirror = types.erasure(elements.getTypeElement(Supplier.class.getCanonicalName()).asType());
+		TypeElement list = elements.getTypeElement(List.class.getCanonicalName());
+		blockBatchArrayParams = new TypeMirror[] {types.getArrayType(identifierMirror), types.getArrayType(blockMirror)};
+		blockBatchListParams = new TypeMirror[] {types.getDeclaredType(list, identifierMirror), types.getDeclaredType(list, blockMirror)};
+		itemBatchArrayParams = new TypeMirror[] {types.getArrayType(identifierMirror), types.getArrayType(itemMirror)};
+		itemBatchListParams = new TypeMirror[] {types.getDeclaredType(list, identifierMirror), types.getDeclaredType(list, itemMirror)};
+		fieldRefParser = new FieldRefParser(elements, types);
 		itemName = TypeName.get(itemMirror);
 		blockName = TypeName.get(blockMirror);
 		blockItemName = TypeName.get(elements.getTypeElement("net.minecraft.item.BlockItem").asType());
 		identifierName = TypeName.get(identifierMirror);
 		registryName = TypeName.get(types.erasure(elements.getTypeElement("net.minecraft.util.registry.Registry").asType()));
 		itemGroupName = TypeName.get(elements.getTypeElement("net.minecraft.item.ItemGroup").asType());
+		registrarGenerator = new RegistrarGenerator(itemName, blockName, blockItemName, identifierName, registryName, itemGroupName,
+				TypeName.get(elements.getTypeElement("net.minecraft.item.Item.Settings").asType()), metrics, ordinals);
+	}
+	
+	@Override
+	public Set<String> getSupportedOptions() {
+		Set<String> options = new HashSet<>(super.getSupportedOptions());
+		// the aggregate registrar depends on every container, which Gradle only allows from aggregating processors
+		options.add(aggregateName != null ? "org.gradle.annotation.processing.aggregating" : "org.gradle.annotation.processing.isolating");
+		return options;
 	}
 	
 	@Override
 	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
-		for(Element clazz : roundEnv.getElementsAnnotatedWith(RegistryContainer.class)) {
-			TypeElement typeElement = (TypeElement) clazz;
-			RegistryContainer rc = typeElement.getAnnotation(RegistryContainer.class);
-			ExecutableElement blockRegisterCallback = null;
-			ExecutableElement itemRegisterCallback = null;
-			List<ParsedBlock> blocks = new ArrayList<>();
-			List<ParsedItem> items = new ArrayList<>();
-			ParsedRegistryContainer parsedContainer = new ParsedRegistryContainer(rc, new TemplateLoader(projectDir.resolve("templates")), TypeName.get(typeElement.asType()), getErrorConsumer(typeElement, RegistryContainer.class), this::parseFieldRef);
-			for(Element ele : typeElement.getEnclosedElements()) {
-				if(ele.getKind() == ElementKind.METHOD) {
-					if(checkForCallbackAnnotation((ExecutableElement) ele, BlockRegistryCallback.class, "block", identifierMirror, blockMirror)) {
-						if(blockRegisterCallback != null) {
-							msg.printMessage(Diagnostic.Kind.ERROR, "Cannot have multiple block registry callbacks", ele, thisApiSucks(ele.getAnnotationMirrors(), BlockRegistryCallback.class));
-							msg.printMessage(Diagnostic.Kind.ERROR, "Cannot have multiple block registry callbacks", ele, thisApiSucks(blockRegisterCallback.getAnnotationMirrors(), BlockRegistryCallback.class));
-						} else {
-							blockRegisterCallback = (ExecutableElement) ele;
-						}
+		Set<? extends Element> containers = roundEnv.getElementsAnnotatedWith(RegistryContainer.class);
+		if(containers.isEmpty() && !aggregated.isEmpty()) {
+			// written once no new containers show up, and before the last round so the aggregate still gets compiled
+			genAggregate();
+		}
+		// sorted, so every output and diagnostic comes out in the same order however javac was handed the sources
+		List<TypeElement> sorted = containers.stream()
+				.map(TypeElement.class::cast)
+				.sorted(Comparator.comparing(t -> t.getQualifiedName().toString()))
+				.collect(Collectors.toList());
+		if(isDev && !devHackWritten && !sorted.isEmpty()) {
+			// once per compilation, the Filer won't create the same resource twice
+			writeResource("", "fabric.mod.json", "{\"id\": \"mcap_dev_load_hack\", \"schemaVersion\": 1, \"version\": \"0.0.0\", \"name\": \"MCAP Dev Loading Hack\", \"description\": \"if you're seeing this outside dev someone did a bad\"}", sorted.get(0));
+			devHackWritten = true;
+		}
+		for(TypeElement typeElement : sorted) {
+			processContainer(typeElement);
+			if(selfCheck != null) {
+				checkContainer(typeElement);
+			}
+		}
+		if(roundEnv.processingOver()) {
+			if(!aggregated.isEmpty()) {
+				genAggregate();
+			}
+			joinPendingAssets();
+			ProcessorProfiler.Span finishSpan = profiler.begin("finish", null);
+			writeBundles();
+			if(directWriter != null) {
+				try {
+					if(!directWriter.commit()) {
+						resourceWriteFailed = true;
 					}
-					if(checkForCallbackAnnotation((ExecutableElement) ele, ItemRegistryCallback.class, "item", identifierMirror, itemMirror)) {
-						if(itemRegisterCallback != null) {
-							msg.printMessage(Diagnostic.Kind.ERROR, "Cannot have multiple item registry callbacks", ele, thisApiSucks(ele.getAnnotationMirrors(), ItemRegistryCallback.class));
-							msg.printMessage(Diagnostic.Kind.ERROR, "Cannot have multiple item registry callbacks", ele, thisApiSucks(itemRegisterCallback.getAnnotationMirrors(), ItemRegistryCallback.class));
-						} else {
-							itemRegisterCallback = (ExecutableElement) ele;
-						}
+				} catch (IOException e) {
+					msg.printMessage(Diagnostic.Kind.ERROR, "Could not move generated assets into mcap.outputDir: " + e);
+					resourceWriteFailed = true;
+				}
+			}
+			if(manifest != null) {
+				finishManifest();
+			}
+			if(persistModel) {
+				deleteStaleModels();
+			}
+			finishSpan.end();
+			if(renderPool != null) {
+				renderPool.shutdown();
+			}
+			if(pipelineExecutor != null) {
+				pipelineExecutor.shutdown();
+			}
+			if(profiler.isEnabled()) {
+				try {
+					profiler.writeTrace(profileFile);
+				} catch (IOException e) {
+					msg.printMessage(Diagnostic.Kind.WARNING, "Could not write profile trace: " + e);
+				}
+				msg.printMessage(Diagnostic.Kind.NOTE, profiler.summary(5) + String.format("%n  trace: %s", profileFile));
+			}
+		}
+		return false;
+	}
+	
+	private void processContainer(TypeElement typeElement) {
+		RegistryContainer rc = typeElement.getAnnotation(RegistryContainer.class);
+		String ownerName = typeElement.getQualifiedName().toString();
+		ExecutableElement blockRegisterCallback = null;
+		ExecutableElement itemRegisterCallback = null;
+		ExecutableElement blockBatchCallback = null;
+		ExecutableElement itemBatchCallback = null;
+		boolean blockBatchLists = false;
+		boolean itemBatchLists = false;
+		List<ParsedBlock> blocks = new ArrayList<>();
+		List<ParsedItem> items = new ArrayList<>();
+		ParsedRegistryContainer parsedContainer;
+		ProcessorProfiler.Span loadTemplatesSpan = profiler.begin("load templates", ownerName);
+		parsedContainer = new ParsedRegistryContainer(rc, new TemplateLoader(templatesDir), TypeName.get(typeElement.asType()), getErrorConsumer(typeElement, RegistryContainer.class), fieldRefParser);
+		loadTemplatesSpan.end();
+		ProcessorProfiler.Span scanSpan = profiler.begin("scan", ownerName);
+		long scanStart = System.nanoTime();
+		long entryNanos = 0;
+		Set<String> lazyNames = new HashSet<>();
+		for(Element ele : typeElement.getEnclosedElements()) {
+			if(ele.getKind() != ElementKind.METHOD && ele.getKind() != ElementKind.FIELD) {
+				continue;
+			}
+			EntryHolder blockHolder = checkForRegisterAnnotation(ele, RegisterBlock.class, blockMirror, lazyNames);
+			if(blockHolder != null) {
+				long entryStart = System.nanoTime();
+				blocks.add(new ParsedBlock(ele, blockHolder, parsedContainer, getErrorConsumer(ele, RegisterBlock.class)));
+				entryNanos += System.nanoTime() - entryStart;
+			}
+			EntryHolder itemHolder = checkForRegisterAnnotation(ele, RegisterItem.class, itemMirror, lazyNames);
+			if(itemHolder != null) {
+				long entryStart = System.nanoTime();
+				items.add(new ParsedItem(ele, itemHolder, parsedContainer, getErrorConsumer(ele, RegisterItem.class)));
+				entryNanos += System.nanoTime() - entryStart;
+			}
+			if(ele.getKind() == ElementKind.METHOD) {
+				if(checkForCallbackAnnotation((ExecutableElement) ele, BlockRegistryCallback.class, "block", new TypeMirror[] {identifierMirror, blockMirror}) >= 0) {
+					if(blockRegisterCallback != null) {
+						msg.printMessage(Diagnostic.Kind.ERROR, "Cannot have multiple block registry callbacks", ele, thisApiSucks(ele.getAnnotationMirrors(), BlockRegistryCallback.class));
+						msg.printMessage(Diagnostic.Kind.ERROR, "Cannot have multiple block registry callbacks", ele, thisApiSucks(blockRegisterCallback.getAnnotationMirrors(), BlockRegistryCallback.class));
+					} else {
+						blockRegisterCallback = (ExecutableElement) ele;
+					}
+				}
+				if(checkForCallbackAnnotation((ExecutableElement) ele, ItemRegistryCallback.class, "item", new TypeMirror[] {identifierMirror, itemMirror}) >= 0) {
+					if(itemRegisterCallback != null) {
+						msg.printMessage(Diagnostic.Kind.ERROR, "Cannot have multiple item registry callbacks", ele, thisApiSucks(ele.getAnnotationMirrors(), ItemRegistryCallback.class));
+						msg.printMessage(Diagnostic.Kind.ERROR, "Cannot have multiple item registry callbacks", ele, thisApiSucks(itemRegisterCallback.getAnnotationMirrors(), ItemRegistryCallback.class));
+					} else {
+						itemRegisterCallback = (ExecutableElement) ele;
 					}
-				} else if(ele.getKind() == ElementKind.FIELD) {
-					VariableElement varEle = (VariableElement) ele;
-					if(checkForRegisterAnnotation(varEle, RegisterBlock.class, blockMirror)) {
-						blocks.add(new ParsedBlock(varEle, parsedContainer, getErrorConsumer(varEle, RegisterBlock.class)));
+				}
+				int blockBatch = checkForCallbackAnnotation((ExecutableElement) ele, BlockRegistryBatchCallback.class, "block batch", blockBatchArrayParams, blockBatchListParams);
+				if(blockBatch >= 0) {
+					if(blockBatchCallback != null) {
+						msg.printMessage(Diagnostic.Kind.ERROR, "Cannot have multiple block batch registry callbacks", ele, thisApiSucks(ele.getAnnotationMirrors(), BlockRegistryBatchCallback.class));
+						msg.printMessage(Diagnostic.Kind.ERROR, "Cannot have multiple block batch registry callbacks", ele, thisApiSucks(blockBatchCallback.getAnnotationMirrors(), BlockRegistryBatchCallback.class));
+					} else {
+						blockBatchCallback = (ExecutableElement) ele;
+						blockBatchLists = blockBatch == 1;
 					}
-					if(checkForRegisterAnnotation(varEle, RegisterItem.class, itemMirror)) {
-						items.add(new ParsedItem(varEle, parsedContainer, getErrorConsumer(varEle, RegisterItem.class)));
+				}
+				int itemBatch = checkForCallbackAnnotation((ExecutableElement) ele, ItemRegistryBatchCallback.class, "item batch", itemBatchArrayParams, itemBatchListParams);
+				if(itemBatch >= 0) {
+					if(itemBatchCallback != null) {
+						msg.printMessage(Diagnostic.Kind.ERROR, "Cannot have multiple item batch registry callbacks", ele, thisApiSucks(ele.getAnnotationMirrors(), ItemRegistryBatchCallback.class));
+						msg.printMessage(Diagnostic.Kind.ERROR, "Cannot have multiple item batch registry callbacks", ele, thisApiSucks(itemBatchCallback.getAnnotationMirrors(), ItemRegistryBatchCallback.class));
+					} else {
+						itemBatchCallback = (ExecutableElement) ele;
+						itemBatchLists = itemBatch == 1;
 					}
 				}
 			}
-			genRegistrar(typeElement, blockRegisterCallback, itemRegisterCallback, blocks, items, parsedContainer);
-			genResources(blocks, items);
 		}
-		return false;
+		if(blockRegisterCallback != null && blockBatchCallback != null) {
+			msg.printMessage(Diagnostic.Kind.ERROR, "Cannot have both a block registry callback and a block batch registry callback", blockBatchCallback, thisApiSucks(blockBatchCallback.getAnnotationMirrors(), BlockRegistryBatchCallback.class));
+			blockBatchCallback = null;
+		}
+		if(itemRegisterCallback != null && itemBatchCallback != null) {
+			msg.printMessage(Diagnostic.Kind.ERROR, "Cannot have both an item registry callback and an item batch registry callback", itemBatchCallback, thisApiSucks(itemBatchCallback.getAnnotationMirrors(), ItemRegistryBatchCallback.class));
+			itemBatchCallback = null;
+		}
+		for(List<ParsedDataTable> tables : Arrays.asList(parsedContainer.getBlockTables(), parsedContainer.getItemTables())) {
+			for(ParsedDataTable table : tables) {
+				if(lazyNames.contains(table.getName())) {
+					msg.printMessage(Diagnostic.Kind.ERROR, String.format("Data table %s has the same name as a lazily registered entry", table.getName()), typeElement, thisApiSucks(typeElement.getAnnotationMirrors(), RegistryContainer.class));
+				}
+			}
+		}
+		scanSpan.end();
+		profiler.recordAggregate("parse entries", ownerName, scanStart, entryNanos, true);
+		genRegistrar(typeElement, blockRegisterCallback, itemRegisterCallback,
+				blockBatchCallback == null ? null : new RegistrarGenerator.BatchCallback(blockBatchCallback.getSimpleName(), blockBatchLists),
+				itemBatchCallback == null ? null : new RegistrarGenerator.BatchCallback(itemBatchCallback.getSimpleName(), itemBatchLists),
+				blocks, items, parsedContainer);
+		if(aggregateWritten) {
+			msg.printMessage(Diagnostic.Kind.WARNING, "Container generated after the aggregate registrar was written, it must be registered separately", typeElement);
+		} else if(aggregateName != null && !secondRun) {
+			aggregated.add(new AggregatedContainer(rc.order(), ownerName, ClassName.get(elements.getPackageOf(typeElement).getQualifiedName().toString(), typeElement.getSimpleName() + "Registrar")));
+		}
+		genResources(blocks, items, typeElement);
+	}
+	
+	/**
+	 * Generates a container a second time with its outputs compared against the first run instead of written, and
+	 * fails the build on any difference. Diagnostics were already reported by the first run and are not repeated.
+	 * Both runs share this JVM, so differences between machines are not caught, see {@link OutputCheck}.
+	 */
+	private void checkContainer(TypeElement typeElement) {
+		Messager realMsg = msg;
+		ProcessorProfiler realProfiler = profiler;
+		msg = new SilentMessager();
+		profiler = ProcessorProfiler.DISABLED;
+		secondRun = true;
+		try {
+			processContainer(typeElement);
+		} finally {
+			msg = realMsg;
+			profiler = realProfiler;
+			secondRun = false;
+		}
+		for(String problem : selfCheck.finish(typeElement.getQualifiedName().toString())) {
+			msg.printMessage(Diagnostic.Kind.ERROR, problem + ", the output is not reproducible", typeElement);
+		}
 	}
 	
 	private Consumer<String> getErrorConsumer(Element element, Class<?> annotation) {
@@ -144,125 +474,672 @@ public class Processor extends AbstractProcessor {
 		return ANNOTATIONS;
 	}
 	
-	private void genRegistrar(TypeElement ownerClass, ExecutableElement blockCallback, ExecutableElement itemCallback, List<ParsedBlock> blocks, List<ParsedItem> items, ParsedRegistryContainer rc) {
-		TypeName ownerClassName = TypeName.get(ownerClass.asType());
-		CodeBlock.Builder regBuilder = CodeBlock.builder();
+	private void genRegistrar(TypeElement ownerClass, ExecutableElement blockCallback, ExecutableElement itemCallback, RegistrarGenerator.BatchCallback blockBatch, RegistrarGenerator.BatchCallback itemBatch, List<ParsedBlock> blocks, List<ParsedItem> items, ParsedRegistryContainer rc) {
+		String pkg = elements.getPackageOf(ownerClass).getQualifiedName().toString();
+		String ownerName = ownerClass.getQualifiedName().toString();
+		if(registrarClassWriter != null && (blockBatch != null || itemBatch != null || idLookup || ordinals || rc.hasDataTables())) {
+			String unsupported = idLookup ? "id lookups" : ordinals || rc.hasDataTables() ? "ordinals" : "batch registry callbacks";
+			msg.printMessage(Diagnostic.Kind.NOTE, String.format("Writing registrar as source, the class file form does not support %s", unsupported), ownerClass);
+		} else if(registrarClassWriter != null) {
+			String registrarName = ownerClass.getSimpleName() + "Registrar";
+			byte[] registrarClass;
+			ProcessorProfiler.Span registrarClassSpan = profiler.begin("registrar class", ownerName);
+			registrarClass = genRegistrarClass(pkg.isEmpty() ? registrarName : pkg + "." + registrarName, ownerClass, blockCallback, itemCallback, blocks, items, rc);
+			registrarClassSpan.end();
+			if(registrarClass != null) {
+				writeClassFile(pkg.isEmpty() ? registrarName : pkg + "." + registrarName, registrarClass, ownerClass);
+				return;
+			}
+		}
+		IdentifierConstants constants = null;
+		TypeSpec constantsHolder = null;
+		PerfectHash blockLookup = null;
+		PerfectHash itemLookup = null;
+		TypeSpec registrar;
+		ProcessorProfiler.Span registrarSpan = profiler.begin("registrar", ownerName);
+		if(identifierConstants) {
+			constants = new IdentifierConstants(ClassName.get(pkg, ownerClass.getSimpleName() + "Ids"), blocks, items);
+			constantsHolder = constants.generate(identifierName, rc.getModId());
+		}
+		if(idLookup) {
+			blockLookup = buildLookup(blocks.stream().map(ParsedBlock::getId).collect(Collectors.toList()), "block", ownerClass);
+			itemLookup = buildLookup(items.stream().map(ParsedItem::getId).collect(Collectors.toList()), "item", ownerClass);
+		}
+		registrar = registrarGenerator.generate(ownerClass.getSimpleName() + "Registrar",
+				blockCallback == null ? null : blockCallback.getSimpleName(),
+				itemCallback == null ? null : itemCallback.getSimpleName(),
+				blockBatch, itemBatch, blocks, items, rc, constants, blockLookup, itemLookup);
+		registrarSpan.end();
+		if(constantsHolder != null) {
+			writeSourceFile(pkg, constantsHolder, ownerClass);
+		}
+		writeSourceFile(pkg, registrar, ownerClass);
+	}
+	
+	/**
+	 * Builds the perfect hash for a kind's id lookups, or returns null when the kind is empty or, after an error, when its
+	 * ids are duplicated or too many.
+	 */
+	private PerfectHash buildLookup(List<String> ids, String kind, TypeElement ownerClass) {
+		if(ids.isEmpty()) {
+			return null;
+		}
+		PerfectHash hash = PerfectHash.build(ids);
+		if(hash == null) {
+			Set<String> seen = new HashSet<>();
+			String duplicate = ids.stream().filter(id -> !seen.add(id)).findFirst().orElse(null);
+			String reason = duplicate != null ? "the id " + duplicate + " is registered more than once" : String.format("there are more than %d %s ids", PerfectHash.MAX_KEYS, kind);
+			msg.printMessage(Diagnostic.Kind.ERROR, String.format("Cannot generate the %s id lookup, %s", kind, reason), ownerClass, thisApiSucks(ownerClass.getAnnotationMirrors(), RegistryContainer.class));
+		}
+		return hash;
+	}
+	
+	/**
+	 * Resolves the registry symbols the class file registrar links against, or returns null after warning if they can't
+	 * be found or linked from a version 49 class.
+	 */
+	private RegistrarClassWriter createRegistrarClassWriter() {
+		TypeElement registry = elements.getTypeElement("net.minecraft.util.registry.Registry");
+		ExecutableElement register = null;
+		VariableElement blockRegistry = null;
+		VariableElement itemRegistry = null;
+		for(Element ele : registry.getEnclosedElements()) {
+			if(ele.getKind() == ElementKind.METHOD && ele.getSimpleName().contentEquals("register") && ele.getModifiers().contains(Modifier.STATIC)) {
+				List<? extends VariableElement> params = ((ExecutableElement) ele).getParameters();
+				if(params.size() == 3 && types.isSameType(types.erasure(params.get(1).asType()), types.erasure(identifierMirror))) {
+					register = (ExecutableElement) ele;
+				}
+			} else if(ele.getKind() == ElementKind.FIELD && ele.getSimpleName().contentEquals("BLOCK")) {
+				blockRegistry = (VariableElement) ele;
+			} else if(ele.getKind() == ElementKind.FIELD && ele.getSimpleName().contentEquals("ITEM")) {
+				itemRegistry = (VariableElement) ele;
+			}
+		}
+		if(register == null || blockRegistry == null || itemRegistry == null || registry.getKind().isInterface()) {
+			msg.printMessage(Diagnostic.Kind.WARNING, "Registry API not recognized, registrars are written as source despite mcap.registrarOutput");
+			return null;
+		}
+		return new RegistrarClassWriter(internalName(blockMirror), internalName(itemMirror), internalName(elements.getTypeElement("net.minecraft.item.BlockItem").asType()), internalName(identifierMirror),
+				internalName(elements.getTypeElement("net.minecraft.item.ItemGroup").asType()), internalName(elements.getTypeElement("net.minecraft.item.Item.Settings").asType()),
+				member(register), member(blockRegistry), member(itemRegistry));
+	}
+	
+	/**
+	 * Builds the class file form of a registrar, or returns null after a note if the container uses something only the
+	 * source form supports.
+	 */
+	private byte[] genRegistrarClass(String registrarName, TypeElement ownerClass, ExecutableElement blockCallback, ExecutableElement itemCallback, List<ParsedBlock> blocks, List<ParsedItem> items, ParsedRegistryContainer rc) {
+		String unsupported = identifierConstants ? "identifier constants" : metrics != RegistrarGenerator.Metrics.NONE ? "metrics" : null;
+		Map<String, Element> fields = new HashMap<>();
+		for(Element ele : ownerClass.getEnclosedElements()) {
+			if(ele.getKind() == ElementKind.FIELD) {
+				fields.put(ele.getSimpleName().toString(), ele);
+			}
+		}
+		List<RegistrarClassWriter.Entry> blockEntries = new ArrayList<>();
+		List<RegistrarClassWriter.Entry> itemEntries = new ArrayList<>();
 		for(ParsedBlock block : blocks) {
-			block.appendTo(regBuilder);
+			if(block.getHolder().isLazy()) {
+				unsupported = "lazy holders";
+				break;
+			}
+			RegistrarClassWriter.Member group = null;
+			if(block.hasAutoBlockItem() && block.getItemGroup() != null) {
+				TypeElement groupOwner = elements.getTypeElement(block.getItemGroup().getTargetType().toString());
+				Element groupField = groupOwner == null ? null : groupOwner.getEnclosedElements().stream()
+						.filter(e -> e.getKind() == ElementKind.FIELD && e.getSimpleName().contentEquals(block.getItemGroup().getTargetName()))
+						.findFirst().orElse(null);
+				if(groupField == null) {
+					unsupported = "unresolved item group " + block.getItemGroup().getTargetType() + "." + block.getItemGroup().getTargetName();
+					break;
+				}
+				group = member(groupField);
+			}
+			blockEntries.add(new RegistrarClassWriter.Entry(member(fields.get(block.getFieldName())), block.getId(), block.hasAutoBlockItem(), group));
 		}
-		
 		for(ParsedItem item : items) {
-			item.appendTo(regBuilder);
+			if(item.getHolder().isLazy()) {
+				unsupported = "lazy holders";
+				break;
+			}
+			itemEntries.add(new RegistrarClassWriter.Entry(member(fields.get(item.getFieldName())), item.getId(), false, null));
 		}
-		
-		CodeBlock.Builder itemRegBuilder = CodeBlock.builder();
-		if(itemCallback != null) {
-			itemRegBuilder.addStatement("$1T.$2L(new $3T($4S, id), item)", ownerClassName, itemCallback.getSimpleName(), identifierName, rc.getModId());
-		} else {
-			itemRegBuilder.addStatement("$1T.register($1T.ITEM, new $2T($3S, id), item)", registryName, identifierName, rc.getModId());
+		if(unsupported == null) {
+			try {
+				return registrarClassWriter.write(registrarName.replace('.', '/'), rc.getModId(),
+						blockCallback == null ? null : member(blockCallback),
+						itemCallback == null ? null : member(itemCallback),
+						blockEntries, itemEntries);
+			} catch (IllegalStateException e) {
+				unsupported = e.getMessage();
+			}
 		}
-		
-		CodeBlock.Builder blockRegBuilder = CodeBlock.builder();
-		if(blockCallback != null) {
-			blockRegBuilder.addStatement("$1T.$2L(new $3T($4S, id), block)", ownerClassName, blockCallback.getSimpleName(), identifierName, rc.getModId());
+		msg.printMessage(Diagnostic.Kind.NOTE, String.format("Writing registrar as source, the class file form does not support %s", unsupported), ownerClass);
+		return null;
+	}
+	
+	private void writeClassFile(String name, byte[] bytes, TypeElement ownerClass) {
+		if(selfCheck != null && checkOutput(ownerClass.getQualifiedName().toString(), name.replace('.', '/') + ".class", bytes, ownerClass)) {
+			return;
+		}
+		ProcessorProfiler.Span classWriteSpan = profiler.begin("class write", ownerClass.getQualifiedName().toString());
+		try {
+			try(OutputStream out = filer.createClassFile(name, ownerClass).openOutputStream()) {
+				out.write(bytes);
+			}
+		} catch (IOException e) {
+			msg.printMessage(Diagnostic.Kind.ERROR, e.toString(), ownerClass);
+		} finally {
+			classWriteSpan.end();
+		}
+	}
+	
+	private RegistrarClassWriter.Member member(Element ele) {
+		TypeMirror type = types.erasure(ele.asType());
+		String descriptor;
+		if(ele.getKind() == ElementKind.METHOD) {
+			ExecutableElement method = (ExecutableElement) ele;
+			StringBuilder sb = new StringBuilder("(");
+			for(VariableElement param : method.getParameters()) {
+				sb.append(descriptor(types.erasure(param.asType())));
+			}
+			descriptor = sb.append(')').append(descriptor(types.erasure(method.getReturnType()))).toString();
 		} else {
-			blockRegBuilder.addStatement("$1T.register($1T.BLOCK, new $2T($3S, id), block)", registryName, identifierName, rc.getModId());
+			descriptor = descriptor(type);
 		}
-		
-		CodeBlock.Builder createBI1 = CodeBlock.builder();
-		createBI1.addStatement("return new $1T(block, new $2T.Settings())", blockItemName, itemName);
-		
-		CodeBlock.Builder createBI2 = CodeBlock.builder();
-		createBI2.addStatement("return new $1T(block, new $2T.Settings().group(group))", blockItemName, itemName);
-		
-		TypeSpec registrar = TypeSpec.classBuilder(ownerClass.getSimpleName() + "Registrar")
-				.addModifiers(Modifier.PUBLIC)
-				.addMethod(MethodSpec.methodBuilder("register").returns(TypeName.VOID).addModifiers(Modifier.PUBLIC, Modifier.STATIC).addCode(regBuilder.build()).build())
-				.addMethod(MethodSpec.methodBuilder("registerItem").returns(TypeName.VOID).addModifiers(Modifier.PRIVATE, Modifier.STATIC)
-						.addParameter(itemName, "item")
-						.addParameter(String.class, "id")
-						.addCode(itemRegBuilder.build()).build())
-				.addMethod(MethodSpec.methodBuilder("registerBlock").returns(TypeName.VOID).addModifiers(Modifier.PRIVATE, Modifier.STATIC)
-						.addParameter(blockName, "block")
-						.addParameter(String.class, "id")
-						.addCode(blockRegBuilder.build()).build())
-				.addMethod(MethodSpec.methodBuilder("createBlockItem").returns(itemName).addModifiers(Modifier.PRIVATE, Modifier.STATIC)
-						.addParameter(blockName, "block")
-						.addCode(createBI1.build()).build())
-				.addMethod(MethodSpec.methodBuilder("createBlockItem").returns(itemName).addModifiers(Modifier.PRIVATE, Modifier.STATIC)
-						.addParameter(blockName, "block")
-						.addParameter(itemGroupName, "group")
-						.addCode(createBI2.build()).build())
-				.build();
-		
-		JavaFile javaFile = JavaFile.builder(elements.getPackageOf(ownerClass).getQualifiedName().toString(), registrar)
+		return new RegistrarClassWriter.Member(internalName(ele.getEnclosingElement().asType()), ele.getSimpleName().toString(), descriptor);
+	}
+	
+	private String internalName(TypeMirror type) {
+		return elements.getBinaryName((TypeElement) types.asElement(type)).toString().replace('.', '/');
+	}
+	
+	/**
+	 * JVM descriptor of an erased type.
+	 */
+	private String descriptor(TypeMirror type) {
+		switch(type.getKind()) {
+		case BOOLEAN: return "Z";
+		case BYTE: return "B";
+		case CHAR: return "C";
+		case SHORT: return "S";
+		case INT: return "I";
+		case LONG: return "J";
+		case FLOAT: return "F";
+		case DOUBLE: return "D";
+		case VOID: return "V";
+		case ARRAY: return "[" + descriptor(types.erasure(((ArrayType) type).getComponentType()));
+		case TYPEVAR: return descriptor(types.erasure(type));
+		default: return "L" + internalName(type) + ";";
+		}
+	}
+	
+	/**
+	 * Generates the module-level registrar for every container processed so far, in declared order.
+	 */
+	private void genAggregate() {
+		aggregated.sort(Comparator.comparingInt((AggregatedContainer c) -> c.order).thenComparing(c -> c.owner));
+		List<ClassName> registrars = new ArrayList<>();
+		Element[] owners = new Element[aggregated.size()];
+		for(int i = 0; i < aggregated.size(); i++) {
+			registrars.add(aggregated.get(i).registrar);
+			owners[i] = elements.getTypeElement(aggregated.get(i).owner);
+		}
+		TypeSpec aggregate = registrarGenerator.generateAggregate(aggregateName.simpleName(), registrars);
+		writeSourceFile(aggregateName.packageName(), aggregate, aggregateName.toString(), owners);
+		aggregated.clear();
+		aggregateWritten = true;
+	}
+	
+	private void writeSourceFile(String pkg, TypeSpec type, TypeElement ownerClass) {
+		writeSourceFile(pkg, type, ownerClass.getQualifiedName().toString(), ownerClass);
+	}
+	
+	private void writeSourceFile(String pkg, TypeSpec type, String container, Element... originatingElements) {
+		JavaFile javaFile = JavaFile.builder(pkg, type)
 				.indent("\t")
 				.build();
+		if(selfCheck != null && checkOutput(container, OutputManifest.pathOf(pkg, type.name + ".java"), javaFile.toString().getBytes(StandardCharsets.UTF_8), originatingElements.length == 1 ? originatingElements[0] : null)) {
+			return;
+		}
+		ProcessorProfiler.Span sourceWriteSpan = profiler.begin("source write", container);
 		try {
-			JavaFileObject jfo = filer.createSourceFile(elements.getPackageOf(ownerClass).getQualifiedName().toString() + "." + ownerClass.getSimpleName() + "Registrar", ownerClass);
-			try(InputStream in = javaFile.toJavaFileObject().openInputStream()) {
-				try(OutputStream out = jfo.openOutputStream()) {
-					byte[] buffer = new byte[1024];
-					int len = in.read(buffer);
-					while (len != -1) {
-			    		out.write(buffer, 0, len);
-			    		len = in.read(buffer);
-					}
-				}
+			JavaFileObject jfo = filer.createSourceFile(pkg + "." + type.name, originatingElements);
+			try(Writer out = jfo.openWriter()) {
+				javaFile.writeTo(out);
 			}
 		} catch (IOException e) {
 			e.printStackTrace();
-			msg.printMessage(Diagnostic.Kind.ERROR, e.toString(), ownerClass);
+			if(originatingElements.length == 1) {
+				msg.printMessage(Diagnostic.Kind.ERROR, e.toString(), originatingElements[0]);
+			} else {
+				msg.printMessage(Diagnostic.Kind.ERROR, e.toString());
+			}
+		} finally {
+			sourceWriteSpan.end();
 		}
 	}
 	
-	private void genResources(List<ParsedBlock> blocks, List<ParsedItem> items) {
+	private void genResources(List<ParsedBlock> blocks, List<ParsedItem> items, TypeElement owner) {
+		ResourceCreator assets = assetCreator(owner);
+		List<ResourceJob> jobs = new ArrayList<>();
 		for(ParsedBlock b : blocks) {
-			b.genResources(this::createResource);
+			b.collectJobs(jobs);
 		}
 		
 		for(ParsedItem i : items) {
-			i.genResources(this::createResource);
+			i.collectJobs(jobs);
 		}
 		
-		if(isDev) {
-			createResource("", "fabric.mod.json", "{\"id\": \"mcap_dev_load_hack\", \"schemaVersion\": 1, \"version\": \"0.0.0\", \"name\": \"MCAP Dev Loading Hack\", \"description\": \"if you're seeing this outside dev someone did a bad\"}");
+		String ownerName = owner.getQualifiedName().toString();
+		if(persistModel && !secondRun) {
+			ProcessorProfiler.Span persistModelSpan = profiler.begin("persist model", ownerName);
+			try {
+				ContainerModel.write(ContainerModel.pathOf(projectDir.resolve("mcap").resolve("models"), ownerName), ownerName, owner.getAnnotation(RegistryContainer.class).value(), jobs);
+			} catch (IOException e) {
+				msg.printMessage(Diagnostic.Kind.WARNING, "Could not persist container model: " + e, owner);
+			} finally {
+				persistModelSpan.end();
+			}
+		}
+		if(assetManifestGenerator != null) {
+			TypeSpec manifestType;
+			ProcessorProfiler.Span assetManifestSpan = profiler.begin("asset manifest", ownerName);
+			manifestType = assetManifestGenerator.generate(owner.getSimpleName() + "Assets", owner.getAnnotation(RegistryContainer.class).value(), jobs);
+			assetManifestSpan.end();
+			if(manifestType != null) {
+				writeSourceFile(elements.getPackageOf(owner).getQualifiedName().toString(), manifestType, owner);
+			}
+		}
+		if(pipeline) {
+			pendingAssets.add(new PendingAssets(ownerName, jobs, submitRender(jobs, ownerName)));
+		} else if(renderPool != null && jobs.size() > 1) {
+			List<String> rendered;
+			ProcessorProfiler.Span renderSpan = profiler.begin("render", ownerName);
+			try {
+				rendered = submitRender(jobs, ownerName).get();
+			} catch (InterruptedException | ExecutionException e) {
+				msg.printMessage(Diagnostic.Kind.ERROR, "Error rendering resources: " + e, owner);
+				return;
+			} finally {
+				renderSpan.end();
+			}
+			ProcessorProfiler.Span writeSpan = profiler.begin("write", ownerName);
+			writeRendered(jobs, rendered, owner, assets);
+			writeSpan.end();
+		} else {
+			StringBuilder buffer = new StringBuilder(512);
+			StringBuilder scratch = minifyJson ? new StringBuilder(512) : null;
+			long start = System.nanoTime();
+			long renderNanos = 0;
+			for(ResourceJob job : jobs) {
+				long renderStart = System.nanoTime();
+				buffer.setLength(0);
+				job.renderTo(buffer);
+				CharSequence contents = postRender(job, buffer, scratch, owner);
+				renderNanos += System.nanoTime() - renderStart;
+				if(contents != null) {
+					profiler.countOutput(job.getType(), contents);
+					assets.createResource(job.getPackage(), job.getFileName(), contents);
+				}
+			}
+			long total = System.nanoTime() - start;
+			profiler.recordAggregate("render", ownerName, start, renderNanos, false);
+			profiler.recordAggregate("write", ownerName, start + renderNanos, total - renderNanos, false);
 		}
 	}
 	
-	private void createResource(String pkg, String fileName, String contents) {
-		try(Writer w = filer.createResource(StandardLocation.CLASS_OUTPUT, pkg, fileName).openWriter()) {
-			w.write(contents);
-		} catch (IOException e) {
-			e.printStackTrace();
+	private Future<List<String>> submitRender(List<ResourceJob> jobs, String ownerName) {
+		if(renderPool != null) {
+			// rendering fans out, but results keep job order and the Filer is only touched from the compiler thread
+			return renderPool.submit(() -> {
+				ProcessorProfiler.Span backgroundRenderSpan = profiler.begin("background render", ownerName);
+				try {
+					return jobs.parallelStream().map(ResourceJob::render).collect(Collectors.toList());
+				} finally {
+					backgroundRenderSpan.end();
+				}
+			});
 		}
+		return pipelineExecutor.submit(() -> {
+			ProcessorProfiler.Span backgroundRenderSpan = profiler.begin("background render", ownerName);
+			try {
+				return jobs.stream().map(ResourceJob::render).collect(Collectors.toList());
+			} finally {
+				backgroundRenderSpan.end();
+			}
+		});
 	}
 	
-	private boolean checkForRegisterAnnotation(VariableElement ele, Class<? extends Annotation> annotation, TypeMirror requiredType) {
-		if(ele.getAnnotation(annotation) != null) {
-			if(types.isAssignable(ele.asType(), requiredType) || true) { // FIXME figure out why the fuck this just doesn't work sometimes and remove || true
-				if(ele.getModifiers().contains(Modifier.STATIC)) {
-					if(!ele.getModifiers().contains(Modifier.PRIVATE)) {
-						return true;
-					} else {
-						msg.printMessage(Diagnostic.Kind.ERROR, "Register annotation requires at least package access", ele, thisApiSucks(ele.getAnnotationMirrors(), annotation));
+	private void writeRendered(List<ResourceJob> jobs, List<String> rendered, TypeElement owner, ResourceCreator rc) {
+		StringBuilder scratch = minifyJson ? new StringBuilder(512) : null;
+		for(int i = 0; i < jobs.size(); i++) {
+			ResourceJob job = jobs.get(i);
+			CharSequence contents = postRender(job, rendered.get(i), scratch, owner);
+			if(contents != null) {
+				profiler.countOutput(job.getType(), contents);
+				rc.createResource(job.getPackage(), job.getFileName(), contents);
+			}
+		}
+	}
+	
+	/**
+	 * With mcap.minifyJson, validates a rendered asset and returns its minified form in <code>scratch</code>. Invalid
+	 * JSON is reported against the field the asset belongs to and null is returned, so the broken file is not written.
+	 */
+	private CharSequence postRender(ResourceJob job, CharSequence rendered, StringBuilder scratch, TypeElement owner) {
+		if(!minifyJson) {
+			return rendered;
+		}
+		scratch.setLength(0);
+		try {
+			JsonMinifier.minify(rendered, scratch);
+			return scratch;
+		} catch (IllegalArgumentException e) {
+			Class<? extends Annotation> entryAnnotation = job.getType() == ProcessorTemplateType.ITEM ? RegisterItem.class : RegisterBlock.class;
+			Element field = owner;
+			for(Element ele : owner.getEnclosedElements()) {
+				if((ele.getKind() == ElementKind.FIELD || ele.getKind() == ElementKind.METHOD) && ele.getSimpleName().contentEquals(job.getField()) && ele.getAnnotation(entryAnnotation) != null) {
+					field = ele;
+					break;
+				}
+			}
+			Class<?> annotation = field == owner ? RegistryContainer.class : entryAnnotation;
+			getErrorConsumer(field, annotation).accept(String.format("Generated %s %s is not valid JSON: %s", job.getType().name().toLowerCase(Locale.ROOT), OutputManifest.pathOf(job.getPackage(), job.getFileName()), e.getMessage()));
+			return null;
+		}
+	}
+	
+	/**
+	 * Waits for pipelined asset rendering and writes the results, in the order their containers were processed.
+	 */
+	private void joinPendingAssets() {
+		for(PendingAssets p : pendingAssets) {
+			TypeElement owner = elements.getTypeElement(p.owner);
+			ProcessorProfiler.Span writeSpan = profiler.begin("write", p.owner);
+			try {
+				writeRendered(p.jobs, p.rendered.get(), owner, assetCreator(owner));
+			} catch (InterruptedException | ExecutionException e) {
+				msg.printMessage(Diagnostic.Kind.ERROR, "Error rendering resources: " + e, owner);
+			} finally {
+				writeSpan.end();
+			}
+		}
+		pendingAssets.clear();
+	}
+	
+	/**
+	 * Where a container's generated assets go: always loose files, and with mcap.bundle also its resource pack bundle.
+	 */
+	private ResourceCreator assetCreator(TypeElement owner) {
+		if(!bundle || secondRun) {
+			return (pkg, fileName, contents) -> createResource(pkg, fileName, contents, owner);
+		}
+		ResourcePackBundle pack = bundles.get(owner.getQualifiedName().toString());
+		if(pack == null) {
+			try {
+				pack = new ResourcePackBundle(owner.getAnnotation(RegistryContainer.class).value());
+			} catch (IOException e) {
+				throw new IllegalStateException(e); // in-memory, cannot happen
+			}
+			bundles.put(owner.getQualifiedName().toString(), pack);
+		}
+		ResourcePackBundle target = pack;
+		return (pkg, fileName, contents) -> {
+			createResource(pkg, fileName, contents, owner);
+			try {
+				target.add(pkg, fileName, contents);
+			} catch (IOException e) {
+				msg.printMessage(Diagnostic.Kind.ERROR, String.format("Could not bundle %s: %s", OutputManifest.pathOf(pkg, fileName), e), owner);
+			}
+		};
+	}
+	
+	/**
+	 * Writes each container's resource pack and its index as <code>mcap/bundles/&lt;container&gt;.zip</code> and
+	 * <code>.index</code> in buildDir. Neither Minecraft nor Fabric loads a pack nested in a mod jar, so the bundle is
+	 * for tooling only and kept out of the class output.
+	 */
+	private void writeBundles() {
+		for(Map.Entry<String, ResourcePackBundle> e : bundles.entrySet()) {
+			TypeElement owner = elements.getTypeElement(e.getKey());
+			try {
+				if(selfCheck != null) {
+					ByteArrayOutputStream first = new ByteArrayOutputStream();
+					ByteArrayOutputStream second = new ByteArrayOutputStream();
+					e.getValue().writeTo(first);
+					e.getValue().writeTo(second);
+					if(!Arrays.equals(first.toByteArray(), second.toByteArray())) {
+						msg.printMessage(Diagnostic.Kind.ERROR, String.format("Generated mcap/bundles/%s.zip differs between two runs, the output is not reproducible", e.getKey()), owner);
 					}
-				} else {
-					msg.printMessage(Diagnostic.Kind.ERROR, "Register annotation requires field to be static", ele, thisApiSucks(ele.getAnnotationMirrors(), annotation));
 				}
+				Path bundleDir = Files.createDirectories(projectDir.resolve("mcap").resolve("bundles"));
+				try(OutputStream out = Files.newOutputStream(bundleDir.resolve(e.getKey() + ".zip"))) {
+					e.getValue().writeTo(out);
+				}
+				try(OutputStream out = Files.newOutputStream(bundleDir.resolve(e.getKey() + ".index"))) {
+					e.getValue().writeIndexTo(out);
+				}
+			} catch (IOException ex) {
+				msg.printMessage(Diagnostic.Kind.ERROR, "Could not write resource pack bundle: " + ex, owner);
+			}
+		}
+		bundles.clear();
+	}
+	
+	private void createResource(String pkg, String fileName, CharSequence contents, TypeElement owner) {
+		if(selfCheck != null && checkOutput(owner.getQualifiedName().toString(), OutputManifest.pathOf(pkg, fileName), contents.toString().getBytes(StandardCharsets.UTF_8), owner)) {
+			return;
+		}
+		writeResource(pkg, fileName, contents, owner);
+	}
+	
+	private void writeResource(String pkg, String fileName, CharSequence contents, TypeElement owner) {
+		if(manifest != null && manifest.record(owner.getQualifiedName().toString(), OutputManifest.pathOf(pkg, fileName), contents) && getExistingOutput(pkg, fileName) != null) {
+			return;
+		}
+		try {
+			if(directWriter != null) {
+				directWriter.write(pkg, fileName, contents);
+			} else {
+				try(Writer w = filer.createResource(StandardLocation.CLASS_OUTPUT, pkg, fileName, owner).openWriter()) {
+					w.append(contents);
+				}
+			}
+		} catch (IOException e) {
+			msg.printMessage(Diagnostic.Kind.ERROR, String.format("Could not write %s: %s", OutputManifest.pathOf(pkg, fileName), e), owner);
+			resourceWriteFailed = true;
+			if(manifest != null) {
+				manifest.discard(OutputManifest.pathOf(pkg, fileName));
+			}
+		}
+	}
+	
+	/**
+	 * With mcap.selfCheck, records an output of the first run, reporting it if it isn't relocatable, or verifies an
+	 * output of the second run.
+	 * @return whether the output must not be written, because this is the second run
+	 */
+	private boolean checkOutput(String owner, String path, byte[] contents, Element element) {
+		if(secondRun) {
+			selfCheck.verify(owner, path, contents);
+			return true;
+		}
+		String problem = selfCheck.record(owner, path, contents);
+		if(problem != null) {
+			problem += ", the output is not relocatable";
+			if(element != null) {
+				msg.printMessage(Diagnostic.Kind.ERROR, problem, element);
 			} else {
-				msg.printMessage(Diagnostic.Kind.ERROR, String.format("%s annotation requires a field of type %s", annotation.getSimpleName(), requiredType.toString()), ele, thisApiSucks(ele.getAnnotationMirrors(), annotation));
+				msg.printMessage(Diagnostic.Kind.ERROR, problem);
 			}
 		}
 		return false;
 	}
 	
-	private boolean checkForCallbackAnnotation(ExecutableElement ele, Class<? extends Annotation> annotation, String name, TypeMirror... paramsRequired) {
+	/**
+	 * Returns the on-disk path of a previously generated resource, or null if it does not exist or is not a plain file.
+	 */
+	private Path getExistingOutput(String pkg, String fileName) {
+		if(directWriter != null) {
+			return directWriter.getExisting(pkg, fileName);
+		}
+		try {
+			FileObject fo = filer.getResource(StandardLocation.CLASS_OUTPUT, pkg, fileName);
+			URI uri = fo.toUri();
+			if("file".equals(uri.getScheme())) {
+				Path p = Paths.get(uri);
+				if(Files.isRegularFile(p)) {
+					return p;
+				}
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			// treat as missing
+		}
+		return null;
+	}
+	
+	private void finishManifest() {
+		for(String stale : manifest.collectStale(owner -> elements.getTypeElement(owner) != null)) {
+			int split = stale.lastIndexOf('/');
+			Path p = getExistingOutput(split == -1 ? "" : stale.substring(0, split).replace('/', '.'), stale.substring(split + 1));
+			if(p != null) {
+				try {
+					Files.delete(p);
+					msg.printMessage(Diagnostic.Kind.NOTE, "Deleted stale generated resource " + stale);
+				} catch (IOException e) {
+					msg.printMessage(Diagnostic.Kind.WARNING, "Could not delete stale generated resource " + stale + ": " + e);
+				}
+			}
+		}
+		if(resourceWriteFailed) {
+			// the hashes of what was written can't be trusted, the next build rewrites from the last saved manifest
+			msg.printMessage(Diagnostic.Kind.WARNING, "Not saving output manifest, some resources could not be written or committed");
+			return;
+		}
+		try {
+			manifest.save();
+		} catch (IOException e) {
+			msg.printMessage(Diagnostic.Kind.WARNING, "Could not write output manifest: " + e);
+		}
+	}
+	
+	/**
+	 * Deletes persisted models whose container no longer resolves, as finishManifest does for generated resources, so the
+	 * asset renderer stops producing assets for removed or renamed containers.
+	 */
+	private void deleteStaleModels() {
+		Path modelDir = projectDir.resolve("mcap").resolve("models");
+		if(!Files.isDirectory(modelDir)) {
+			return;
+		}
+		try(DirectoryStream<Path> models = Files.newDirectoryStream(modelDir, "*.model")) {
+			for(Path model : models) {
+				String fileName = model.getFileName().toString();
+				String owner = fileName.substring(0, fileName.length() - ".model".length());
+				if(elements.getTypeElement(owner) == null) {
+					try {
+						Files.delete(model);
+						msg.printMessage(Diagnostic.Kind.NOTE, "Deleted stale container model " + owner);
+					} catch (IOException e) {
+						msg.printMessage(Diagnostic.Kind.WARNING, "Could not delete stale container model " + owner + ": " + e);
+					}
+				}
+			}
+		} catch (IOException e) {
+			msg.printMessage(Diagnostic.Kind.WARNING, "Could not list container models: " + e);
+		}
+	}
+	
+	/**
+	 * @return how the annotated element holds its value, or null if it isn't annotated or can't be registered
+	 */
+	private EntryHolder checkForRegisterAnnotation(Element ele, Class<? extends Annotation> annotation, TypeMirror requiredType, Set<String> lazyNames) {
+		if(ele.getAnnotation(annotation) != null) {
+			if(!ele.getModifiers().contains(Modifier.STATIC)) {
+				msg.printMessage(Diagnostic.Kind.ERROR, "Register annotation requires field or method to be static", ele, thisApiSucks(ele.getAnnotationMirrors(), annotation));
+			} else if(ele.getModifiers().contains(Modifier.PRIVATE)) {
+				msg.printMessage(Diagnostic.Kind.ERROR, "Register annotation requires at least package access", ele, thisApiSucks(ele.getAnnotationMirrors(), annotation));
+			} else {
+				EntryHolder holder = getHolder(ele, annotation, requiredType);
+				if(holder == null || !holder.isLazy()) {
+					return holder;
+				}
+				String name = ele.getSimpleName().toString();
+				if(RegistrarGenerator.isReserved(name)) {
+					msg.printMessage(Diagnostic.Kind.ERROR, String.format("Lazy holder name %s clashes with a generated registrar member", name), ele, thisApiSucks(ele.getAnnotationMirrors(), annotation));
+				} else if(!lazyNames.add(name)) {
+					msg.printMessage(Diagnostic.Kind.ERROR, String.format("Lazy holder name %s is used more than once, its registrar accessor would be ambiguous", name), ele, thisApiSucks(ele.getAnnotationMirrors(), annotation));
+				} else {
+					return holder;
+				}
+			}
+		}
+		return null;
+	}
+	
+	private EntryHolder getHolder(Element ele, Class<? extends Annotation> annotation, TypeMirror requiredType) {
+		if(ele.getKind() == ElementKind.METHOD) {
+			ExecutableElement method = (ExecutableElement) ele;
+			if(!method.getParameters().isEmpty() || method.getReturnType().getKind() != TypeKind.DECLARED || !types.isAssignable(types.erasure(method.getReturnType()), requiredType)) {
+				msg.printMessage(Diagnostic.Kind.ERROR, String.format("%s factory method must take no parameters and return a %s", annotation.getSimpleName(), requiredType), ele, thisApiSucks(ele.getAnnotationMirrors(), annotation));
+				return null;
+			}
+			return new EntryHolder(EntryHolder.Kind.FACTORY, TypeName.get(method.getReturnType()));
+		}
+		if(types.isAssignable(types.erasure(ele.asType()), supplierMirror)) {
+			DeclaredType supplier = asSupplier(ele.asType());
+			List<? extends TypeMirror> args = supplier == null ? Collections.emptyList() : supplier.getTypeArguments();
+			TypeMirror arg = args.isEmpty() ? null : args.get(0);
+			if(arg != null && arg.getKind() == TypeKind.WILDCARD) {
+				arg = ((WildcardType) arg).getExtendsBound();
+			}
+			if(arg == null || arg.getKind() != TypeKind.DECLARED || !types.isAssignable(types.erasure(arg), requiredType)) {
+				msg.printMessage(Diagnostic.Kind.ERROR, String.format("%s holder must be a Supplier of %s", annotation.getSimpleName(), requiredType), ele, thisApiSucks(ele.getAnnotationMirrors(), annotation));
+				return null;
+			}
+			return new EntryHolder(EntryHolder.Kind.SUPPLIER, TypeName.get(arg));
+		}
+		if(types.isAssignable(ele.asType(), requiredType) || true) { // FIXME figure out why the fuck this just doesn't work sometimes and remove || true
+			return EntryHolder.FIELD;
+		} else {
+			msg.printMessage(Diagnostic.Kind.ERROR, String.format("%s annotation requires a field of type %s", annotation.getSimpleName(), requiredType.toString()), ele, thisApiSucks(ele.getAnnotationMirrors(), annotation));
+			return null;
+		}
+	}
+	
+	/**
+	 * @return the <code>Supplier</code> supertype of a type with its type argument as the type binds it, or null if raw
+	 */
+	private DeclaredType asSupplier(TypeMirror type) {
+		if(types.isSameType(types.erasure(type), supplierMirror)) {
+			return type.getKind() == TypeKind.DECLARED ? (DeclaredType) type : null;
+		}
+		for(TypeMirror supertype : types.directSupertypes(type)) {
+			DeclaredType supplier = asSupplier(supertype);
+			if(supplier != null) {
+				return supplier;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * @param signatures accepted parameter lists
+	 * @return the index of the signature the annotated method matches, or -1 if it isn't annotated or is invalid
+	 */
+	private int checkForCallbackAnnotation(ExecutableElement ele, Class<? extends Annotation> annotation, String name, TypeMirror[]... signatures) {
 		if(ele.getAnnotation(annotation) != null) {
-			if(checkParams(ele, paramsRequired)) {
+			int signature = -1;
+			for(int i = 0; i < signatures.length && signature < 0; i++) {
+				if(checkParams(ele, signatures[i])) {
+					signature = i;
+				}
+			}
+			if(signature >= 0) {
 				if(ele.getModifiers().contains(Modifier.STATIC)) {
 					if(!ele.getModifiers().contains(Modifier.PRIVATE)) {
-						return true;
+						return signature;
 					} else {
 						msg.printMessage(Diagnostic.Kind.ERROR, "Callback annotation requires at least package access", ele, thisApiSucks(ele.getAnnotationMirrors(), annotation));
 					}
@@ -270,11 +1147,11 @@ public class Processor extends AbstractProcessor {
 					msg.printMessage(Diagnostic.Kind.ERROR, "Callback annotation requires method to be static", ele, thisApiSucks(ele.getAnnotationMirrors(), annotation));
 				}
 			} else {
-				msg.printMessage(Diagnostic.Kind.ERROR, String.format("%s registry callback must have parameters %s", name, Arrays.toString(paramsRequired)), ele);
-				return false;
+				msg.printMessage(Diagnostic.Kind.ERROR, String.format("%s registry callback must have parameters %s", name,
+						Arrays.stream(signatures).map(Arrays::toString).collect(Collectors.joining(" or "))), ele);
 			}
 		}
-		return false;
+		return -1;
 	}
 	
 	private boolean checkParams(ExecutableElement element, TypeMirror... desired) {
@@ -300,23 +1177,52 @@ public class Processor extends AbstractProcessor {
 		return null;
 	}
 	
-	private ParsedFieldRef parseFieldRef(FieldRef fieldRef) {
-		TypeMirror t = thisApiSucksMore(fieldRef);
-		if(types.isSameType(t, voidMirror) && !fieldRef.field().equals("#$%INHERIT")) {
-			return null;
-		} else {
-			return new ParsedFieldRef(t, fieldRef.field());
+	/**
+	 * Asset jobs of one container awaiting their background render. Holds no elements, only the owner's name.
+	 */
+	private static class PendingAssets {
+		private final String owner;
+		private final List<ResourceJob> jobs;
+		private final Future<List<String>> rendered;
+		
+		private PendingAssets(String owner, List<ResourceJob> jobs, Future<List<String>> rendered) {
+			this.owner = owner;
+			this.jobs = jobs;
+			this.rendered = rendered;
 		}
 	}
 	
-	private TypeMirror thisApiSucksMore(FieldRef fieldRef) {
-		TypeMirror mirror;
-		try {
-			mirror = elements.getTypeElement(fieldRef.clazz().getCanonicalName()).asType();
-		} catch(MirroredTypeException e) {
-			mirror = e.getTypeMirror();
+	private static class AggregatedContainer {
+		private final int order;
+		private final String owner;
+		private final ClassName registrar;
+		
+		private AggregatedContainer(int order, String owner, ClassName registrar) {
+			this.order = order;
+			this.owner = owner;
+			this.registrar = registrar;
+		}
+	}
+	
+	/**
+	 * Drops diagnostics, for the self-check's second run.
+	 */
+	private static class SilentMessager implements Messager {
+		@Override
+		public void printMessage(Diagnostic.Kind kind, CharSequence msg) {
+		}
+		
+		@Override
+		public void printMessage(Diagnostic.Kind kind, CharSequence msg, Element e) {
+		}
+		
+		@Override
+		public void printMessage(Diagnostic.Kind kind, CharSequence msg, Element e, AnnotationMirror a) {
+		}
+		
+		@Override
+		public void printMessage(Diagnostic.Kind kind, CharSequence msg, Element e, AnnotationMirror a, AnnotationValue v) {
 		}
-		return mirror;
 	}
 	
 	static {
@@ -0,0 +1,190 @@
+package io.github.nuclearfarts.mcap.processor;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Opt-in phase timing for the processor. Records Chrome trace-event "complete" events per container and counts the
+ * files and bytes written per template type. The {@link #DISABLED} instance does nothing, so call sites need no checks.
+ */
+public class ProcessorProfiler {
+	public static final ProcessorProfiler DISABLED = new ProcessorProfiler(false);
+	
+	private static final Span NO_SPAN = () -> { };
+	
+	private final boolean enabled;
+	private final long origin = System.nanoTime();
+	private final List<Event> events = new ArrayList<>();
+	private final Map<ProcessorTemplateType, long[]> outputs = new EnumMap<>(ProcessorTemplateType.class);
+	
+	private ProcessorProfiler(boolean enabled) {
+		this.enabled = enabled;
+	}
+	
+	public static ProcessorProfiler create() {
+		return new ProcessorProfiler(true);
+	}
+	
+	public boolean isEnabled() {
+		return enabled;
+	}
+	
+	/**
+	 * Starts timing a phase. End the returned span to record it.
+	 * @param container qualified name of the container, or null for processor-wide phases
+	 */
+	public Span begin(String phase, String container) {
+		if(!enabled) {
+			return NO_SPAN;
+		}
+		long start = System.nanoTime();
+		return () -> record(phase, container, start, System.nanoTime() - start, false, false);
+	}
+	
+	/**
+	 * Records time accumulated over many small steps as one event starting at <code>start</code>.
+	 * @param nested whether the time is already covered by another span of the same container
+	 */
+	public void recordAggregate(String phase, String container, long start, long durationNanos, boolean nested) {
+		if(enabled) {
+			record(phase, container, start, durationNanos, true, nested);
+		}
+	}
+	
+	public void countOutput(ProcessorTemplateType type, CharSequence contents) {
+		if(!enabled) {
+			return;
+		}
+		long bytes = utf8Length(contents);
+		synchronized(outputs) {
+			long[] counts = outputs.computeIfAbsent(type, t -> new long[2]);
+			counts[0]++;
+			counts[1] += bytes;
+		}
+	}
+	
+	private void record(String phase, String container, long start, long durationNanos, boolean aggregate, boolean nested) {
+		Event e = new Event(phase, container, start - origin, durationNanos, Thread.currentThread().getId(), aggregate, nested);
+		synchronized(events) {
+			events.add(e);
+		}
+	}
+	
+	public void writeTrace(Path file) throws IOException {
+		if(file.getParent() != null) {
+			Files.createDirectories(file.getParent());
+		}
+		try(BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			w.write("{\"displayTimeUnit\": \"ms\", \"traceEvents\": [");
+			boolean first = true;
+			synchronized(events) {
+				for(Event e : events) {
+					w.write(first ? "\n" : ",\n");
+					first = false;
+					w.write(String.format(Locale.ROOT, "{\"name\": \"%s\", \"cat\": \"mcap\", \"ph\": \"X\", \"ts\": %.3f, \"dur\": %.3f, \"pid\": 1, \"tid\": %d, \"args\": {\"container\": \"%s\", \"aggregate\": %b}}",
+							escape(e.phase), e.start / 1000.0, e.duration / 1000.0, e.thread, e.container == null ? "" : escape(e.container), e.aggregate));
+				}
+			}
+			w.write("\n], \"otherData\": {");
+			first = true;
+			synchronized(outputs) {
+				for(Map.Entry<ProcessorTemplateType, long[]> o : outputs.entrySet()) {
+					w.write(first ? "" : ", ");
+					first = false;
+					w.write(String.format(Locale.ROOT, "\"%s.files\": \"%d\", \"%1$s.bytes\": \"%d\"", o.getKey(), o.getValue()[0], o.getValue()[1]));
+				}
+			}
+			w.write("}}\n");
+		}
+	}
+	
+	/**
+	 * Human readable totals per phase, the slowest containers and output counts per template type.
+	 */
+	public String summary(int worstContainers) {
+		Map<String, Long> phases = new LinkedHashMap<>();
+		Map<String, Long> containers = new LinkedHashMap<>();
+		synchronized(events) {
+			for(Event e : events) {
+				phases.merge(e.phase, e.duration, Long::sum);
+				if(e.container != null && !e.nested) {
+					containers.merge(e.container, e.duration, Long::sum);
+				}
+			}
+		}
+		StringBuilder sb = new StringBuilder("mc-ap profile:");
+		for(Map.Entry<String, Long> p : phases.entrySet()) {
+			sb.append(String.format(Locale.ROOT, "%n  %-16s %10.2f ms", p.getKey(), p.getValue() / 1e6));
+		}
+		List<Map.Entry<String, Long>> sorted = new ArrayList<>(containers.entrySet());
+		sorted.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+		if(!sorted.isEmpty()) {
+			sb.append(String.format(Locale.ROOT, "%n  slowest containers:"));
+			for(Map.Entry<String, Long> c : sorted.subList(0, Math.min(worstContainers, sorted.size()))) {
+				sb.append(String.format(Locale.ROOT, "%n    %10.2f ms  %s", c.getValue() / 1e6, c.getKey()));
+			}
+		}
+		synchronized(outputs) {
+			for(Map.Entry<ProcessorTemplateType, long[]> o : outputs.entrySet()) {
+				sb.append(String.format(Locale.ROOT, "%n  %-16s %8d files %12d bytes", o.getKey(), o.getValue()[0], o.getValue()[1]));
+			}
+		}
+		return sb.toString();
+	}
+	
+	private static long utf8Length(CharSequence s) {
+		long length = 0;
+		for(int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if(c < 0x80) {
+				length++;
+			} else if(c < 0x800) {
+				length += 2;
+			} else if(Character.isHighSurrogate(c)) {
+				length += 4;
+				i++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+	
+	private static String escape(String s) {
+		return s.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+	
+	@FunctionalInterface
+	public interface Span {
+		void end();
+	}
+	
+	private static class Event {
+		private final String phase;
+		private final String container;
+		private final long start;
+		private final long duration;
+		private final long thread;
+		private final boolean aggregate;
+		private final boolean nested;
+		
+		private Event(String phase, String container, long start, long duration, long thread, boolean aggregate, boolean nested) {
+			this.phase = phase;
+			this.container = container;
+			this.start = start;
+			this.duration = duration;
+			this.thread = thread;
+			this.aggregate = aggregate;
+			this.nested = nested;
+		}
+	}
+}
@@ -0,0 +1,357 @@
+package io.github.nuclearfarts.mcap.processor;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a container's registrar directly as a class file, so javac never parses or attributes it. The class has the
+ * same public API and registers in the same order as the string id source {@link RegistrarGenerator} builds. Past
+ * {@link #CHUNK_SIZE} entries, <code>register()</code> calls one private method per chunk, which keeps every method
+ * far below the 64KB limit and small enough for the JIT to compile.
+ * <p>
+ * The class targets version 49, which needs no stack map frames; the code is straight-line anyway. Names are internal
+ * names (<code>a/b/C</code>) and types are descriptors, resolved by the caller.
+ */
+public class RegistrarClassWriter {
+	public static final int CHUNK_SIZE = 256;
+	private static final int VERSION = 49;
+	private static final int ACC_PUBLIC = 0x0001;
+	private static final int ACC_PRIVATE = 0x0002;
+	private static final int ACC_STATIC = 0x0008;
+	private static final int ACC_SUPER = 0x0020;
+	private static final String STRING = "Ljava/lang/String;";
+	
+	private final String block;
+	private final String item;
+	private final String blockItem;
+	private final String identifier;
+	private final String itemGroup;
+	private final String itemSettings;
+	private final Member registerMethod;
+	private final Member blockRegistry;
+	private final Member itemRegistry;
+	
+	/**
+	 * @param registerMethod the static <code>Registry.register(Registry, Identifier, T)</code> method
+	 * @param blockRegistry the static field holding the block registry
+	 * @param itemRegistry the static field holding the item registry
+	 */
+	public RegistrarClassWriter(String block, String item, String blockItem, String identifier, String itemGroup, String itemSettings, Member registerMethod, Member blockRegistry, Member itemRegistry) {
+		this.block = block;
+		this.item = item;
+		this.blockItem = blockItem;
+		this.identifier = identifier;
+		this.itemGroup = itemGroup;
+		this.itemSettings = itemSettings;
+		this.registerMethod = registerMethod;
+		this.blockRegistry = blockRegistry;
+		this.itemRegistry = itemRegistry;
+	}
+	
+	/**
+	 * @param blockCallback the owner's block registry callback, or null to use the vanilla registry
+	 * @param itemCallback the owner's item registry callback, or null to use the vanilla registry
+	 * @throws IllegalStateException if the class would exceed a class file limit
+	 */
+	public byte[] write(String registrarName, String modId, Member blockCallback, Member itemCallback, List<Entry> blocks, List<Entry> items) {
+		Pool pool = new Pool();
+		List<Bytes> methods = new ArrayList<>();
+		String blockDesc = "L" + block + ";";
+		String itemDesc = "L" + item + ";";
+		int registerBlock = pool.member(10, registrarName, "registerBlock", "(" + blockDesc + STRING + ")V");
+		int registerItem = pool.member(10, registrarName, "registerItem", "(" + itemDesc + STRING + ")V");
+		int createBlockItem = pool.member(10, registrarName, "createBlockItem", "(" + blockDesc + ")" + itemDesc);
+		int createGroupBlockItem = pool.member(10, registrarName, "createBlockItem", "(" + blockDesc + "L" + itemGroup + ";)" + itemDesc);
+		
+		Bytes init = new Bytes();
+		init.u1(0x2A).u1(0xB7).u2(pool.member(10, "java/lang/Object", "<init>", "()V")).u1(0xB1);
+		methods.add(method(pool, ACC_PUBLIC, "<init>", "()V", 1, 1, init));
+		
+		List<Bytes> chunks = new ArrayList<>();
+		Bytes chunk = null;
+		int inChunk = CHUNK_SIZE;
+		List<Entry> all = new ArrayList<>(blocks);
+		all.addAll(items);
+		for(int i = 0; i < all.size(); i++) {
+			if(inChunk == CHUNK_SIZE) {
+				chunk = new Bytes();
+				chunks.add(chunk);
+				inChunk = 0;
+			}
+			inChunk++;
+			Entry entry = all.get(i);
+			int value = pool.member(9, entry.value.owner, entry.value.name, entry.value.descriptor);
+			chunk.u1(0xB2).u2(value);
+			ldc(chunk, pool.string(entry.id));
+			if(i < blocks.size()) {
+				chunk.u1(0xB8).u2(registerBlock);
+				if(entry.blockItem) {
+					chunk.u1(0xB2).u2(value);
+					if(entry.group != null) {
+						chunk.u1(0xB2).u2(pool.member(9, entry.group.owner, entry.group.name, entry.group.descriptor));
+						chunk.u1(0xB8).u2(createGroupBlockItem);
+					} else {
+						chunk.u1(0xB8).u2(createBlockItem);
+					}
+					ldc(chunk, pool.string(entry.id));
+					chunk.u1(0xB8).u2(registerItem);
+				}
+			} else {
+				chunk.u1(0xB8).u2(registerItem);
+			}
+		}
+		Bytes register = new Bytes();
+		if(chunks.size() == 1) {
+			register = chunks.get(0);
+		} else {
+			for(int i = 0; i < chunks.size(); i++) {
+				register.u1(0xB8).u2(pool.member(10, registrarName, "register" + i, "()V"));
+				methods.add(method(pool, ACC_PRIVATE | ACC_STATIC, "register" + i, "()V", 3, 0, chunks.get(i).u1(0xB1)));
+			}
+		}
+		methods.add(method(pool, ACC_PUBLIC | ACC_STATIC, "register", "()V", 3, 0, register.u1(0xB1)));
+		
+		methods.add(method(pool, ACC_PRIVATE | ACC_STATIC, "registerItem", "(" + itemDesc + STRING + ")V", 5, 2, callback(pool, modId, itemCallback, itemRegistry)));
+		methods.add(method(pool, ACC_PRIVATE | ACC_STATIC, "registerBlock", "(" + blockDesc + STRING + ")V", 5, 2, callback(pool, modId, blockCallback, blockRegistry)));
+		
+		int settingsInit = pool.member(10, itemSettings, "<init>", "()V");
+		int blockItemInit = pool.member(10, blockItem, "<init>", "(" + blockDesc + "L" + itemSettings + ";)V");
+		Bytes create = new Bytes();
+		create.u1(0xBB).u2(pool.classRef(blockItem)).u1(0x59).u1(0x2A)
+				.u1(0xBB).u2(pool.classRef(itemSettings)).u1(0x59).u1(0xB7).u2(settingsInit)
+				.u1(0xB7).u2(blockItemInit).u1(0xB0);
+		methods.add(method(pool, ACC_PRIVATE | ACC_STATIC, "createBlockItem", "(" + blockDesc + ")" + itemDesc, 5, 1, create));
+		Bytes createGroup = new Bytes();
+		createGroup.u1(0xBB).u2(pool.classRef(blockItem)).u1(0x59).u1(0x2A)
+				.u1(0xBB).u2(pool.classRef(itemSettings)).u1(0x59).u1(0xB7).u2(settingsInit)
+				.u1(0x2B).u1(0xB6).u2(pool.member(10, itemSettings, "group", "(L" + itemGroup + ";)L" + itemSettings + ";"))
+				.u1(0xB7).u2(blockItemInit).u1(0xB0);
+		methods.add(method(pool, ACC_PRIVATE | ACC_STATIC, "createBlockItem", "(" + blockDesc + "L" + itemGroup + ";)" + itemDesc, 5, 2, createGroup));
+		
+		int thisClass = pool.classRef(registrarName);
+		int superClass = pool.classRef("java/lang/Object");
+		Bytes out = new Bytes();
+		out.u4(0xCAFEBABE).u2(0).u2(VERSION).u2(pool.size);
+		out.put(pool.bytes);
+		out.u2(ACC_PUBLIC | ACC_SUPER).u2(thisClass).u2(superClass).u2(0).u2(0).u2(methods.size());
+		for(Bytes m : methods) {
+			out.put(m);
+		}
+		out.u2(0);
+		return out.toByteArray();
+	}
+	
+	/**
+	 * Body of <code>registerBlock</code> or <code>registerItem</code>: builds the identifier from the modid and the
+	 * path in local 1, then passes it and the value in local 0 to the callback or the vanilla registry.
+	 */
+	private Bytes callback(Pool pool, String modId, Member callback, Member registry) {
+		Bytes code = new Bytes();
+		if(callback == null) {
+			code.u1(0xB2).u2(pool.member(9, registry.owner, registry.name, registry.descriptor));
+		}
+		code.u1(0xBB).u2(pool.classRef(identifier)).u1(0x59);
+		ldc(code, pool.string(modId));
+		code.u1(0x2B).u1(0xB7).u2(pool.member(10, identifier, "<init>", "(" + STRING + STRING + ")V"));
+		code.u1(0x2A);
+		Member target = callback == null ? registerMethod : callback;
+		code.u1(0xB8).u2(pool.member(10, target.owner, target.name, target.descriptor));
+		char returned = target.descriptor.charAt(target.descriptor.indexOf(')') + 1);
+		if(returned == 'J' || returned == 'D') {
+			code.u1(0x58);
+		} else if(returned != 'V') {
+			code.u1(0x57);
+		}
+		return code.u1(0xB1);
+	}
+	
+	private static void ldc(Bytes code, int index) {
+		if(index < 256) {
+			code.u1(0x12).u1(index);
+		} else {
+			code.u1(0x13).u2(index);
+		}
+	}
+	
+	private static Bytes method(Pool pool, int access, String name, String descriptor, int maxStack, int maxLocals, Bytes code) {
+		if(code.size() > 65535) {
+			throw new IllegalStateException("Method " + name + " is too large");
+		}
+		Bytes m = new Bytes();
+		m.u2(access).u2(pool.utf8(name)).u2(pool.utf8(descriptor)).u2(1);
+		m.u2(pool.utf8("Code")).u4(12 + code.size()).u2(maxStack).u2(maxLocals).u4(code.size());
+		m.put(code);
+		m.u2(0).u2(0);
+		return m;
+	}
+	
+	/**
+	 * A field or method: owner internal name, name and descriptor.
+	 */
+	public static final class Member {
+		private final String owner;
+		private final String name;
+		private final String descriptor;
+		
+		public Member(String owner, String name, String descriptor) {
+			this.owner = owner;
+			this.name = name;
+			this.descriptor = descriptor;
+		}
+	}
+	
+	/**
+	 * One registered block or item.
+	 */
+	public static final class Entry {
+		private final Member value;
+		private final String id;
+		private final boolean blockItem;
+		private final Member group;
+		
+		/**
+		 * @param value the static field holding the block or item
+		 * @param blockItem whether a block item is registered for the block
+		 * @param group the static field holding the block item's group, or null for none
+		 */
+		public Entry(Member value, String id, boolean blockItem, Member group) {
+			this.value = value;
+			this.id = id;
+			this.blockItem = blockItem;
+			this.group = group;
+		}
+	}
+	
+	private static final class Bytes extends ByteArrayOutputStream {
+		Bytes u1(int b) {
+			write(b);
+			return this;
+		}
+		
+		Bytes u2(int s) {
+			write(s >>> 8);
+			write(s);
+			return this;
+		}
+		
+		Bytes u4(int i) {
+			return u2(i >>> 16).u2(i & 0xFFFF);
+		}
+		
+		/**
+		 * Writes a length-prefixed modified UTF-8 string.
+		 */
+		Bytes utf(String s) {
+			int start = count;
+			u2(0);
+			for(int i = 0; i < s.length(); i++) {
+				char c = s.charAt(i);
+				if(c != 0 && c < 0x80) {
+					write(c);
+				} else if(c < 0x800) {
+					write(0xC0 | c >> 6);
+					write(0x80 | c & 0x3F);
+				} else {
+					write(0xE0 | c >> 12);
+					write(0x80 | c >> 6 & 0x3F);
+					write(0x80 | c & 0x3F);
+				}
+			}
+			int length = count - start - 2;
+			if(length > 65535) {
+				throw new IllegalStateException("Constant too long");
+			}
+			buf[start] = (byte) (length >>> 8);
+			buf[start + 1] = (byte) length;
+			return this;
+		}
+		
+		Bytes put(Bytes bytes) {
+			write(bytes.buf, 0, bytes.count);
+			return this;
+		}
+	}
+	
+	/**
+	 * Constant pool, deduplicating entries by tag and contents.
+	 */
+	private static final class Pool {
+		private final Map<String, Integer> indices = new HashMap<>();
+		private final Bytes bytes = new Bytes();
+		private int size = 1;
+		
+		private Integer find(String key) {
+			return indices.get(key);
+		}
+		
+		private int add(String key) {
+			if(size >= 65535) {
+				throw new IllegalStateException("Constant pool overflow");
+			}
+			indices.put(key, size);
+			return size++;
+		}
+		
+		int utf8(String s) {
+			String key = "1:" + s;
+			Integer index = find(key);
+			if(index == null) {
+				bytes.u1(1).utf(s);
+				index = add(key);
+			}
+			return index;
+		}
+		
+		int classRef(String internalName) {
+			String key = "7:" + internalName;
+			Integer index = find(key);
+			if(index == null) {
+				int name = utf8(internalName);
+				bytes.u1(7).u2(name);
+				index = add(key);
+			}
+			return index;
+		}
+		
+		int string(String s) {
+			String key = "8:" + s;
+			Integer index = find(key);
+			if(index == null) {
+				int value = utf8(s);
+				bytes.u1(8).u2(value);
+				index = add(key);
+			}
+			return index;
+		}
+		
+		/**
+		 * @param tag 9 for a field, 10 for a method
+		 */
+		int member(int tag, String owner, String name, String descriptor) {
+			String key = tag + ":" + owner + "." + name + ":" + descriptor;
+			Integer index = find(key);
+			if(index == null) {
+				int ownerRef = classRef(owner);
+				int nameAndType = nameAndType(name, descriptor);
+				bytes.u1(tag).u2(ownerRef).u2(nameAndType);
+				index = add(key);
+			}
+			return index;
+		}
+		
+		private int nameAndType(String name, String descriptor) {
+			String key = "12:" + name + ":" + descriptor;
+			Integer index = find(key);
+			if(index == null) {
+				int nameRef = utf8(name);
+				int descriptorRef = utf8(descriptor);
+				bytes.u1(12).u2(nameRef).u2(descriptorRef);
+				index = add(key);
+			}
+			return index;
+		}
+	}
+}
@@ -0,0 +1,1046 @@
+package io.github.nuclearfarts.mcap.processor;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.Modifier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+/**
+ * Builds the <code>*Registrar</code> type for a container. Small containers get one statement per entry in
+ * <code>register()</code>. Once those statements would take more than {@link #INLINE_BYTECODE_BUDGET} bytes of
+ * bytecode, which keeps <code>register()</code> under HotSpot's 8000 byte limit on methods it will compile, the
+ * registrar switches to nested shard classes holding parallel id and value arrays walked by a loop. That keeps every
+ * method small and every static initializer far below the 64KB limit.
+ * <p>
+ * When given {@link IdentifierConstants}, ids are passed around as the holder's precomputed identifiers and block items
+ * sharing an item group share one <code>Item.Settings</code>. That is safe because <code>Item</code> copies everything
+ * it needs out of the settings in its constructor and never keeps a reference to them.
+ * <p>
+ * With {@link Metrics} enabled, the registrar times its own registration and exposes the numbers through a nested
+ * <code>Stats</code> type, returned by <code>getStats()</code> and optionally registered as a platform MBean.
+ * <p>
+ * Entries held lazily ({@link EntryHolder}) get a typed accessor of the same name, which creates the value on first
+ * use and is what registration goes through. A lazy holder returning null leaves its entry unregistered.
+ * <p>
+ * With a {@link BatchCallback}, <code>registerBlock</code>/<code>registerItem</code> only collect into arrays sized
+ * for the container, and <code>register()</code> hands each kind's arrays to its callback in one call. Blocks are
+ * handed over before any item is registered, with automatic block items moved to a pass of their own after that.
+ * Automatic block items go into the item batch, so with metrics they are counted as block items, but their share of
+ * the single item batch call can't be told apart and is timed under items; the block item phase then only covers
+ * constructing them.
+ * <p>
+ * Given a {@link PerfectHash} over a kind's paths, the registrar gets allocation-free <code>*ById</code> and
+ * <code>*ByPath</code> lookups backed by tables in a nested <code>Lookup</code> class, which is only initialized by the
+ * first lookup. That reads every entry of the kind, so it creates lazy entries that weren't created yet.
+ * <p>
+ * With ordinals, each block and item has its declaration index among the container's entries of its kind as a dense
+ * ordinal, found by <code>ordinalOf</code> through an identity table built the same lazy way, and the container's
+ * data tables become primitive arrays indexed by it.
+ */
+public class RegistrarGenerator {
+	/** Bytecode the inline entry statements may take, leaving headroom for the rest of <code>register()</code>. */
+	public static final int INLINE_BYTECODE_BUDGET = 7000;
+	public static final int SHARD_SIZE = 256;
+	public static final String MBEAN_DOMAIN = "io.github.nuclearfarts.mcap";
+	private static final Set<String> RESERVED = new HashSet<>(Arrays.asList("register", "registerBlock", "registerItem", "registerBlockItem", "createBlockItem", "getStats", "registerMBean", "STATS",
+			"flushBlocks", "flushItems", "blockById", "blockByPath", "itemById", "itemByPath", "ordinalOf", "BLOCK_COUNT", "ITEM_COUNT", "pendingBlockIds", "pendingBlocks", "pendingBlockCount", "pendingItemIds", "pendingItems", "pendingItemCount"));
+	
+	/**
+	 * Generated registration metrics.
+	 */
+	public enum Metrics {
+		NONE,
+		/** Time registration and expose it through <code>getStats()</code>. */
+		STATS,
+		/** As {@link #STATS}, and register the stats as a platform MBean once registration finishes. */
+		JMX
+	}
+	
+	/**
+	 * A registry callback taking all of a kind's ids and values in one call.
+	 */
+	public static final class BatchCallback {
+		private final CharSequence name;
+		private final boolean lists;
+		
+		/**
+		 * @param lists whether the callback takes immutable lists rather than arrays
+		 */
+		public BatchCallback(CharSequence name, boolean lists) {
+			this.name = name;
+			this.lists = lists;
+		}
+	}
+	
+	private final TypeName itemName;
+	private final TypeName blockName;
+	private final TypeName blockItemName;
+	private final TypeName identifierName;
+	private final TypeName registryName;
+	private final TypeName itemGroupName;
+	private final TypeName itemSettingsName;
+	private final Metrics metrics;
+	private final boolean ordinals;
+	
+	/**
+	 * Whether a lazy holder of this name would clash with a member the registrar generates for itself.
+	 */
+	public static boolean isReserved(String name) {
+		return RESERVED.contains(name) || name.startsWith("BLOCK_ITEM_SETTINGS_");
+	}
+	
+	public RegistrarGenerator(TypeName itemName, TypeName blockName, TypeName blockItemName, TypeName identifierName, TypeName registryName, TypeName itemGroupName, TypeName itemSettingsName, Metrics metrics, boolean ordinals) {
+		this.itemName = itemName;
+		this.blockName = blockName;
+		this.blockItemName = blockItemName;
+		this.identifierName = identifierName;
+		this.registryName = registryName;
+		this.itemGroupName = itemGroupName;
+		this.itemSettingsName = itemSettingsName;
+		this.metrics = metrics;
+		this.ordinals = ordinals;
+	}
+	
+	/**
+	 * Upper bound on the bytecode the inline form spends on entries. Every value read, id, settings or group constant
+	 * and call takes 3 bytes: <code>registerBlock(value, id)</code> is 9, an automatic block item another 15 and a lazy
+	 * entry's null check 6. Block items registered in their own pass, after a block batch, repeat the null check.
+	 */
+	public static int estimateInlineBytecode(List<ParsedBlock> blocks, List<ParsedItem> items, boolean separateBlockItems) {
+		int bytes = 0;
+		for(ParsedBlock block : blocks) {
+			bytes += (block.getHolder().isLazy() ? 6 : 0) + 9 + (block.hasAutoBlockItem() ? 15 : 0);
+			if(separateBlockItems && block.hasAutoBlockItem() && block.getHolder().isLazy()) {
+				bytes += 6;
+			}
+		}
+		for(ParsedItem item : items) {
+			bytes += (item.getHolder().isLazy() ? 6 : 0) + 9;
+		}
+		return bytes;
+	}
+	
+	/**
+	 * @param blockCallback simple name of the block registry callback, or null to use the vanilla registry
+	 * @param itemCallback simple name of the item registry callback, or null to use the vanilla registry
+	 * @param blockBatch block batch callback, or null; only one of it and <code>blockCallback</code> may be given
+	 * @param itemBatch item batch callback, or null; only one of it and <code>itemCallback</code> may be given
+	 * @param constants identifier constants to register with, or null to build identifiers from strings
+	 * @param blockLookup perfect hash over the block ids to generate lookups from, or null for none
+	 * @param itemLookup perfect hash over the item ids to generate lookups from, or null for none
+	 */
+	public TypeSpec generate(String registrarName, CharSequence blockCallback, CharSequence itemCallback, BatchCallback blockBatch, BatchCallback itemBatch, List<ParsedBlock> blocks, List<ParsedItem> items, ParsedRegistryContainer rc, IdentifierConstants constants, PerfectHash blockLookup, PerfectHash itemLookup) {
+		Generation gen = new Generation(rc, constants);
+		TypeSpec.Builder registrar = TypeSpec.classBuilder(registrarName).addModifiers(Modifier.PUBLIC);
+		boolean timed = metrics != Metrics.NONE;
+		
+		CodeBlock.Builder regBuilder = CodeBlock.builder();
+		if(timed) {
+			regBuilder.addStatement("long start = System.nanoTime()");
+		}
+		boolean lazy = false;
+		int itemCount = items.size();
+		for(ParsedBlock block : blocks) {
+			lazy |= block.getHolder().isLazy();
+			if(block.hasAutoBlockItem()) {
+				itemCount++;
+			}
+		}
+		for(ParsedItem item : items) {
+			lazy |= item.getHolder().isLazy();
+		}
+		if(blockBatch != null) {
+			regBuilder.addStatement("pendingBlockIds = new $T[$L]", identifierName, blocks.size())
+					.addStatement("pendingBlocks = new $T[$L]", blockName, blocks.size())
+					.addStatement("pendingBlockCount = 0");
+		}
+		if(itemBatch != null) {
+			regBuilder.addStatement("pendingItemIds = new $T[$L]", identifierName, itemCount)
+					.addStatement("pendingItems = new $T[$L]", itemName, itemCount)
+					.addStatement("pendingItemCount = 0");
+		}
+		// a block batch registers its blocks when flushed, so block items wait for the flush to keep blocks first
+		boolean separateBlockItems = blockBatch != null;
+		if(estimateInlineBytecode(blocks, items, separateBlockItems) > INLINE_BYTECODE_BUDGET) {
+			List<String> blockItemShards = new ArrayList<>();
+			for(int start = 0, shard = 0; start < blocks.size(); start += SHARD_SIZE, shard++) {
+				List<ParsedBlock> shardBlocks = blocks.subList(start, Math.min(start + SHARD_SIZE, blocks.size()));
+				TypeSpec blockShard = gen.blockShard("BlockShard" + shard, shardBlocks, separateBlockItems);
+				registrar.addType(blockShard);
+				regBuilder.addStatement("$L.register()", blockShard.name);
+				if(separateBlockItems && shardBlocks.stream().anyMatch(ParsedBlock::hasAutoBlockItem)) {
+					blockItemShards.add(blockShard.name);
+				}
+			}
+			if(separateBlockItems) {
+				regBuilder.addStatement("flushBlocks()");
+				for(String blockShard : blockItemShards) {
+					regBuilder.addStatement("$L.registerBlockItems()", blockShard);
+				}
+			}
+			for(int start = 0, shard = 0; start < items.size(); start += SHARD_SIZE, shard++) {
+				TypeSpec itemShard = gen.itemShard("ItemShard" + shard, items.subList(start, Math.min(start + SHARD_SIZE, items.size())));
+				registrar.addType(itemShard);
+				regBuilder.addStatement("$L.register()", itemShard.name);
+			}
+		} else {
+			for(ParsedBlock block : blocks) {
+				CodeBlock value = gen.value(block.getHolder(), block.getFieldName());
+				if(block.getHolder().isLazy()) {
+					regBuilder.beginControlFlow("if($L != null)", value);
+				}
+				regBuilder.addStatement("registerBlock($L, $L)", value, gen.id(block.getId()));
+				if(block.hasAutoBlockItem() && !separateBlockItems) {
+					regBuilder.addStatement("$L($L, $L)", gen.blockItemRegister, gen.blockItem(value, block.getItemGroup()), gen.id(block.getId()));
+				}
+				if(block.getHolder().isLazy()) {
+					regBuilder.endControlFlow();
+				}
+			}
+			
+			if(separateBlockItems) {
+				regBuilder.addStatement("flushBlocks()");
+				for(ParsedBlock block : blocks) {
+					if(block.hasAutoBlockItem()) {
+						CodeBlock value = gen.value(block.getHolder(), block.getFieldName());
+						if(block.getHolder().isLazy()) {
+							regBuilder.beginControlFlow("if($L != null)", value);
+						}
+						regBuilder.addStatement("$L($L, $L)", gen.blockItemRegister, gen.blockItem(value, block.getItemGroup()), gen.id(block.getId()));
+						if(block.getHolder().isLazy()) {
+							regBuilder.endControlFlow();
+						}
+					}
+				}
+			}
+			
+			for(ParsedItem item : items) {
+				CodeBlock value = gen.value(item.getHolder(), item.getFieldName());
+				if(item.getHolder().isLazy()) {
+					regBuilder.beginControlFlow("if($L != null)", value);
+				}
+				regBuilder.addStatement("registerItem($L, $L)", value, gen.id(item.getId()));
+				if(item.getHolder().isLazy()) {
+					regBuilder.endControlFlow();
+				}
+			}
+		}
+		
+		for(ParsedBlock block : blocks) {
+			if(block.getHolder().isLazy()) {
+				addLazyAccessor(registrar, registrarName, block.getHolder(), rc.getOwnerName(), block.getFieldName());
+			}
+		}
+		for(ParsedItem item : items) {
+			if(item.getHolder().isLazy()) {
+				addLazyAccessor(registrar, registrarName, item.getHolder(), rc.getOwnerName(), item.getFieldName());
+			}
+		}
+		
+		TypeName idParamType = constants != null ? identifierName : TypeName.get(String.class);
+		CodeBlock idArg = constants != null ? CodeBlock.of("id") : CodeBlock.of("new $T($S, id)", identifierName, rc.getModId());
+		
+		if(blockBatch != null) {
+			addBatch(registrar, rc.getOwnerName(), blockBatch, blockName, "Block", "BLOCKS", lazy);
+		}
+		if(itemBatch != null) {
+			regBuilder.addStatement("flushItems()");
+			addBatch(registrar, rc.getOwnerName(), itemBatch, itemName, "Item", "ITEMS", lazy);
+		}
+		
+		CodeBlock itemCall;
+		if(itemCallback != null) {
+			itemCall = CodeBlock.of("$1T.$2L($3L, item)", rc.getOwnerName(), itemCallback, idArg);
+		} else {
+			itemCall = CodeBlock.of("$1T.register($1T.ITEM, $2L, item)", registryName, idArg);
+		}
+		
+		CodeBlock blockCall;
+		if(blockCallback != null) {
+			blockCall = CodeBlock.of("$1T.$2L($3L, block)", rc.getOwnerName(), blockCallback, idArg);
+		} else {
+			blockCall = CodeBlock.of("$1T.register($1T.BLOCK, $2L, block)", registryName, idArg);
+		}
+		
+		if(blockLookup != null || itemLookup != null) {
+			TypeSpec.Builder lookup = TypeSpec.classBuilder("Lookup").addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL);
+			CodeBlock.Builder init = CodeBlock.builder();
+			if(blockLookup != null) {
+				List<CodeBlock> values = new ArrayList<>();
+				List<String> ids = new ArrayList<>();
+				for(ParsedBlock block : blocks) {
+					values.add(lookupValue(registrarName, block.getHolder(), rc.getOwnerName(), block.getFieldName()));
+					ids.add(block.getId());
+				}
+				addLookup(registrar, lookup, init, blockLookup, blockName, "block", ids, values, rc.getModId());
+			}
+			if(itemLookup != null) {
+				List<CodeBlock> values = new ArrayList<>();
+				List<String> ids = new ArrayList<>();
+				for(ParsedItem item : items) {
+					values.add(lookupValue(registrarName, item.getHolder(), rc.getOwnerName(), item.getFieldName()));
+					ids.add(item.getId());
+				}
+				addLookup(registrar, lookup, init, itemLookup, itemName, "item", ids, values, rc.getModId());
+			}
+			registrar.addType(lookup.addStaticBlock(init.build())
+					.addMethod(MethodSpec.methodBuilder("slot").returns(TypeName.INT).addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+							.addJavadoc("Slot of the path starting at <code>start</code>, or -1 if it isn't one of the table's.\n")
+							.addParameter(CharSequence.class, "s")
+							.addParameter(TypeName.INT, "start")
+							.addParameter(TypeName.INT, "multiplier")
+							.addParameter(char[].class, "seeds")
+							.addParameter(String[].class, "paths")
+							.addStatement("int hash = 0")
+							.beginControlFlow("if(multiplier == $L && start == 0 && s instanceof String)", PerfectHash.STRING_MULTIPLIER)
+							.addStatement("hash = s.hashCode()")
+							.nextControlFlow("else")
+							.beginControlFlow("for(int i = start; i < s.length(); i++)")
+							.addStatement("hash = multiplier * hash + s.charAt(i)")
+							.endControlFlow()
+							.endControlFlow()
+							.addStatement("int slot = mix(hash, seeds[mix(hash, $L) & (seeds.length - 1)]) & (paths.length - 1)", hex(PerfectHash.BUCKET_SEED))
+							.addStatement("String path = paths[slot]")
+							.beginControlFlow("if(path == null || path.length() != s.length() - start)")
+							.addStatement("return -1")
+							.endControlFlow()
+							.beginControlFlow("if(s instanceof String)")
+							.addStatement("return ((String) s).regionMatches(start, path, 0, path.length()) ? slot : -1")
+							.endControlFlow()
+							.beginControlFlow("for(int i = 0; i < path.length(); i++)")
+							.beginControlFlow("if(path.charAt(i) != s.charAt(start + i))")
+							.addStatement("return -1")
+							.endControlFlow()
+							.endControlFlow()
+							.addStatement("return slot")
+							.build())
+					.addMethod(MethodSpec.methodBuilder("mix").returns(TypeName.INT).addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+							.addParameter(TypeName.INT, "hash")
+							.addParameter(TypeName.INT, "seed")
+							.addStatement("int h = (hash ^ seed) * $L", hex(PerfectHash.MULTIPLIER))
+							.addStatement("h ^= h >>> 16")
+							.addStatement("h *= $L", hex(PerfectHash.FINALIZER))
+							.addStatement("return h ^ h >>> 13")
+							.build())
+					.build());
+		}
+		
+		if(ordinals || rc.hasDataTables()) {
+			addOrdinals(registrar, registrarName, rc, blocks, items);
+		}
+		
+		if(timed) {
+			regBuilder.addStatement("STATS.finish(System.nanoTime() - start)");
+			if(metrics == Metrics.JMX) {
+				regBuilder.beginControlFlow("try")
+						.addStatement("registerMBean()")
+						.nextControlFlow("catch($T | $T e)", JMException.class, SecurityException.class)
+						.add("// monitoring must never break mod initialization\n")
+						.endControlFlow();
+			}
+			addStats(registrar, registrarName, blockBatch != null, itemBatch != null);
+		}
+		
+		registrar
+				.addMethod(MethodSpec.methodBuilder("register").returns(TypeName.VOID).addModifiers(Modifier.PUBLIC, Modifier.STATIC).addCode(regBuilder.build()).build())
+				.addMethod(MethodSpec.methodBuilder("registerItem").returns(TypeName.VOID).addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+						.addParameter(itemName, "item")
+						.addParameter(idParamType, "id")
+						.addCode(itemBatch != null ? collect("Item", "item", idArg, "ITEMS") : callback(itemCall, itemCallback != null, "ITEMS")).build())
+				.addMethod(MethodSpec.methodBuilder("registerBlock").returns(TypeName.VOID).addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+						.addParameter(blockName, "block")
+						.addParameter(idParamType, "id")
+						.addCode(blockBatch != null ? collect("Block", "block", idArg, "BLOCKS") : callback(blockCall, blockCallback != null, "BLOCKS")).build());
+		if(timed) {
+			registrar.addMethod(MethodSpec.methodBuilder("registerBlockItem").returns(TypeName.VOID).addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+					.addParameter(itemName, "item")
+					.addParameter(idParamType, "id")
+					.addCode(itemBatch != null ? collect("Item", "item", idArg, "BLOCK_ITEMS") : callback(itemCall, itemCallback != null, "BLOCK_ITEMS")).build());
+		}
+		
+		if(constants != null) {
+			for(Map.Entry<String, CodeBlock> settings : gen.sharedSettings.entrySet()) {
+				registrar.addField(FieldSpec.builder(itemSettingsName, settings.getKey(), Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+						.initializer(settings.getValue())
+						.build());
+			}
+			registrar.addMethod(MethodSpec.methodBuilder("createBlockItem").returns(itemName).addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+					.addParameter(blockName, "block")
+					.addParameter(itemSettingsName, "settings")
+					.addCode(create(CodeBlock.of("new $T(block, settings)", blockItemName))).build());
+		} else {
+			registrar
+					.addMethod(MethodSpec.methodBuilder("createBlockItem").returns(itemName).addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+							.addParameter(blockName, "block")
+							.addCode(create(CodeBlock.of("new $1T(block, new $2T.Settings())", blockItemName, itemName))).build())
+					.addMethod(MethodSpec.methodBuilder("createBlockItem").returns(itemName).addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+							.addParameter(blockName, "block")
+							.addParameter(itemGroupName, "group")
+							.addCode(create(CodeBlock.of("new $1T(block, new $2T.Settings().group(group))", blockItemName, itemName))).build());
+		}
+		return registrar.build();
+	}
+	
+	/**
+	 * Adds the backing field and double-checked accessor of a lazy entry. Whether the holder was called is kept in a
+	 * separate volatile flag, so a null it returned is cached like any other value and the holder runs only once. The
+	 * flag's <code>$</code> keeps it apart from any name a container can choose for its own members.
+	 */
+	private static void addLazyAccessor(TypeSpec.Builder registrar, String registrarName, EntryHolder holder, TypeName owner, String name) {
+		TypeName type = holder.getValueType();
+		String initialized = name + "$initialized";
+		registrar.addField(type, name, Modifier.PRIVATE, Modifier.STATIC);
+		registrar.addField(TypeName.BOOLEAN, initialized, Modifier.PRIVATE, Modifier.STATIC, Modifier.VOLATILE);
+		registrar.addMethod(MethodSpec.methodBuilder(name).returns(type).addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+				.addJavadoc("Value of the $L holder, created on first use. Null if the holder returned null, in which case it is not registered.\n", name)
+				.beginControlFlow("if(!$L.$L)", registrarName, initialized)
+				.beginControlFlow("synchronized($L.class)", registrarName)
+				.beginControlFlow("if(!$L.$L)", registrarName, initialized)
+				.addStatement("$L.$L = $L", registrarName, name, holder.create(owner, name))
+				.addStatement("$L.$L = true", registrarName, initialized)
+				.endControlFlow()
+				.endControlFlow()
+				.endControlFlow()
+				.addStatement("return $L.$L", registrarName, name)
+				.build());
+	}
+	
+	/**
+	 * Body of a registry helper, timed into the given phase when metrics are enabled. Only a container's own callback
+	 * counts towards callback time, plain <code>Registry.register</code> calls are counted as registry time.
+	 */
+	private CodeBlock callback(CodeBlock call, boolean custom, String phase) {
+		if(metrics == Metrics.NONE) {
+			return CodeBlock.builder().addStatement("$L", call).build();
+		}
+		CodeBlock.Builder body = CodeBlock.builder()
+				.addStatement("long start = System.nanoTime()")
+				.addStatement("$L", call);
+		if(custom) {
+			body.addStatement("STATS.callback(Stats.$L, System.nanoTime() - start, id)", phase);
+		} else {
+			body.addStatement("STATS.registry(Stats.$L, System.nanoTime() - start)", phase);
+		}
+		return body.build();
+	}
+	
+	/**
+	 * Expression for an entry's value from inside the <code>Lookup</code> class, qualified so that lazy accessors can't
+	 * be shadowed by its own methods.
+	 */
+	private static CodeBlock lookupValue(String registrarName, EntryHolder holder, TypeName owner, String name) {
+		return holder.isLazy() ? CodeBlock.of("$L.$L()", registrarName, name) : holder.create(owner, name);
+	}
+	
+	/**
+	 * Adds a kind's tables to the <code>Lookup</code> class and its public lookups to the registrar.
+	 */
+	private static void addLookup(TypeSpec.Builder registrar, TypeSpec.Builder lookup, CodeBlock.Builder init, PerfectHash hash, TypeName valueName, String kind, List<String> ids, List<CodeBlock> values, String modId) {
+		String upper = kind.toUpperCase(Locale.ROOT);
+		String capitalized = Character.toUpperCase(kind.charAt(0)) + kind.substring(1);
+		lookup.addField(FieldSpec.builder(TypeName.INT, upper + "_MULTIPLIER", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+						.initializer("$L", hash.getHashMultiplier())
+						.build())
+				.addField(FieldSpec.builder(char[].class, upper + "_SEEDS", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+						.initializer("$L.toCharArray()", charsLiteral(hash.getSeeds()))
+						.build())
+				.addField(FieldSpec.builder(String[].class, upper + "_PATHS", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+						.initializer("new String[$L]", hash.getTableSize())
+						.build())
+				.addField(FieldSpec.builder(ArrayTypeName.of(valueName), upper + "_VALUES", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+						.initializer("new $T[$L]", valueName, hash.getTableSize())
+						.build());
+		List<CodeBlock> slots = new ArrayList<>();
+		for(int i = 0; i < ids.size(); i++) {
+			int slot = hash.getSlot(i);
+			slots.add(CodeBlock.builder()
+					.addStatement("$L_PATHS[$L] = $S", upper, slot, ids.get(i))
+					.addStatement("$L_VALUES[$L] = $L", upper, slot, values.get(i))
+					.build());
+		}
+		addInit(lookup, init, slots, "init" + capitalized + "s");
+		String prefix = modId + ":";
+		registrar.addMethod(MethodSpec.methodBuilder(kind + "ById").returns(valueName).addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+						.addJavadoc("$L registered by this container under the given <code>namespace:path</code> id, or null. Doesn't allocate.\n", capitalized)
+						.addParameter(String.class, "id")
+						.addStatement("int slot = id.startsWith($S) ? Lookup.slot(id, $L, Lookup.$L_MULTIPLIER, Lookup.$L_SEEDS, Lookup.$L_PATHS) : -1", prefix, prefix.length(), upper, upper, upper)
+						.addStatement("return slot < 0 ? null : Lookup.$L_VALUES[slot]", upper)
+						.build())
+				.addMethod(MethodSpec.methodBuilder(kind + "ByPath").returns(valueName).addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+						.addJavadoc("$L registered by this container under the given path in its namespace, or null. Doesn't allocate.\n", capitalized)
+						.addParameter(CharSequence.class, "path")
+						.addStatement("int slot = Lookup.slot(path, 0, Lookup.$L_MULTIPLIER, Lookup.$L_SEEDS, Lookup.$L_PATHS)", upper, upper, upper)
+						.addStatement("return slot < 0 ? null : Lookup.$L_VALUES[slot]", upper)
+						.build());
+	}
+	
+	/**
+	 * Adds a static initializer's code, moved into init methods of {@link #SHARD_SIZE} blocks each if there are more, so
+	 * that neither it nor they come near the method size limit.
+	 */
+	private static void addInit(TypeSpec.Builder type, CodeBlock.Builder init, List<CodeBlock> code, String methodPrefix) {
+		if(code.size() <= SHARD_SIZE) {
+			code.forEach(init::add);
+			return;
+		}
+		for(int start = 0, chunk = 0; start < code.size(); start += SHARD_SIZE, chunk++) {
+			CodeBlock.Builder body = CodeBlock.builder();
+			code.subList(start, Math.min(start + SHARD_SIZE, code.size())).forEach(body::add);
+			init.addStatement("$L$L()", methodPrefix, chunk);
+			type.addMethod(MethodSpec.methodBuilder(methodPrefix + chunk).returns(TypeName.VOID).addModifiers(Modifier.PRIVATE, Modifier.STATIC).addCode(body.build()).build());
+		}
+	}
+	
+	/**
+	 * Adds the entry counts, <code>ordinalOf</code> accessors backed by the <code>Ordinals</code> class and the data
+	 * tables. Ordinals are found with linear probing over <code>System.identityHashCode</code> in tables kept at most
+	 * half full, so a miss always ends at a null slot.
+	 */
+	private void addOrdinals(TypeSpec.Builder registrar, String registrarName, ParsedRegistryContainer rc, List<ParsedBlock> blocks, List<ParsedItem> items) {
+		TypeSpec.Builder holder = TypeSpec.classBuilder("Ordinals").addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL);
+		CodeBlock.Builder holderInit = CodeBlock.builder();
+		List<CodeBlock> blockPuts = new ArrayList<>();
+		for(int i = 0; i < blocks.size(); i++) {
+			ParsedBlock block = blocks.get(i);
+			blockPuts.add(CodeBlock.builder().addStatement("put(BLOCK_KEYS, BLOCK_ORDINALS, $L, $L)", lookupValue(registrarName, block.getHolder(), rc.getOwnerName(), block.getFieldName()), i).build());
+		}
+		List<CodeBlock> itemPuts = new ArrayList<>();
+		for(int i = 0; i < items.size(); i++) {
+			ParsedItem item = items.get(i);
+			itemPuts.add(CodeBlock.builder().addStatement("put(ITEM_KEYS, ITEM_ORDINALS, $L, $L)", lookupValue(registrarName, item.getHolder(), rc.getOwnerName(), item.getFieldName()), i).build());
+		}
+		addInit(holder, holderInit, blockPuts, "initBlocks");
+		addInit(holder, holderInit, itemPuts, "initItems");
+		int blockTable = Integer.highestOneBit(Math.max(1, blocks.size()) * 2 - 1) << 1;
+		int itemTable = Integer.highestOneBit(Math.max(1, items.size()) * 2 - 1) << 1;
+		registrar.addType(holder
+				.addField(FieldSpec.builder(Object[].class, "BLOCK_KEYS", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL).initializer("new Object[$L]", blockTable).build())
+				.addField(FieldSpec.builder(int[].class, "BLOCK_ORDINALS", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL).initializer("new int[$L]", blockTable).build())
+				.addField(FieldSpec.builder(Object[].class, "ITEM_KEYS", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL).initializer("new Object[$L]", itemTable).build())
+				.addField(FieldSpec.builder(int[].class, "ITEM_ORDINALS", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL).initializer("new int[$L]", itemTable).build())
+				.addStaticBlock(holderInit.build())
+				.addMethod(MethodSpec.methodBuilder("put").returns(TypeName.VOID).addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+						.addParameter(Object[].class, "keys")
+						.addParameter(int[].class, "ordinals")
+						.addParameter(Object.class, "value")
+						.addParameter(TypeName.INT, "ordinal")
+						.beginControlFlow("if(value == null)")
+						.addStatement("return")
+						.endControlFlow()
+						.beginControlFlow("for(int i = index(value, keys.length); ; i = (i + 1) & (keys.length - 1))")
+						.beginControlFlow("if(keys[i] == value)")
+						.addComment("the same object declared twice keeps its first ordinal")
+						.addStatement("return")
+						.endControlFlow()
+						.beginControlFlow("if(keys[i] == null)")
+						.addStatement("keys[i] = value")
+						.addStatement("ordinals[i] = ordinal")
+						.addStatement("return")
+						.endControlFlow()
+						.endControlFlow()
+						.build())
+				.addMethod(MethodSpec.methodBuilder("find").returns(TypeName.INT).addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+						.addParameter(Object.class, "value")
+						.addParameter(Object[].class, "keys")
+						.addParameter(int[].class, "ordinals")
+						.beginControlFlow("for(int i = index(value, keys.length); ; i = (i + 1) & (keys.length - 1))")
+						.addStatement("Object key = keys[i]")
+						.beginControlFlow("if(key == null)")
+						.addStatement("return -1")
+						.endControlFlow()
+						.beginControlFlow("if(key == value)")
+						.addStatement("return ordinals[i]")
+						.endControlFlow()
+						.endControlFlow()
+						.build())
+				.addMethod(MethodSpec.methodBuilder("index").returns(TypeName.INT).addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+						.addParameter(Object.class, "value")
+						.addParameter(TypeName.INT, "length")
+						.addStatement("int h = $T.identityHashCode(value) * $L", System.class, hex(PerfectHash.MULTIPLIER))
+						.addStatement("return (h ^ h >>> 16) & (length - 1)")
+						.build())
+				.build());
+		
+		registrar.addField(FieldSpec.builder(TypeName.INT, "BLOCK_COUNT", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+						.addJavadoc("Number of blocks declared by this container, the bound of their ordinals.\n")
+						.initializer("$L", blocks.size())
+						.build())
+				.addField(FieldSpec.builder(TypeName.INT, "ITEM_COUNT", Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+						.addJavadoc("Number of items declared by this container, the bound of their ordinals.\n")
+						.initializer("$L", items.size())
+						.build())
+				.addMethod(MethodSpec.methodBuilder("ordinalOf").returns(TypeName.INT).addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+						.addJavadoc("Position of the block among this container's blocks in declaration order, or -1 if it isn't one of them.\n")
+						.addParameter(blockName, "block")
+						.addStatement("return Ordinals.find(block, Ordinals.BLOCK_KEYS, Ordinals.BLOCK_ORDINALS)")
+						.build())
+				.addMethod(MethodSpec.methodBuilder("ordinalOf").returns(TypeName.INT).addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+						.addJavadoc("Position of the item among this container's items in declaration order, or -1 if it isn't one of them. Automatic block items have none.\n")
+						.addParameter(itemName, "item")
+						.addStatement("return Ordinals.find(item, Ordinals.ITEM_KEYS, Ordinals.ITEM_ORDINALS)")
+						.build());
+		
+		CodeBlock.Builder dataInit = CodeBlock.builder();
+		List<CodeBlock> data = new ArrayList<>();
+		List<ParsedDataTable> blockTables = rc.getBlockTables();
+		for(int t = 0; t < blockTables.size(); t++) {
+			ParsedDataTable table = blockTables.get(t);
+			List<String> values = new ArrayList<>(blocks.size());
+			for(ParsedBlock block : blocks) {
+				values.add(block.getData(t));
+			}
+			addDataTable(registrar, data, table, "BLOCK_COUNT", values);
+		}
+		List<ParsedDataTable> itemTables = rc.getItemTables();
+		for(int t = 0; t < itemTables.size(); t++) {
+			ParsedDataTable table = itemTables.get(t);
+			List<String> values = new ArrayList<>(items.size());
+			for(ParsedItem item : items) {
+				values.add(item.getData(t));
+			}
+			addDataTable(registrar, data, table, "ITEM_COUNT", values);
+		}
+		if(!data.isEmpty()) {
+			addInit(registrar, dataInit, data, "initData");
+			registrar.addStaticBlock(dataInit.build());
+		}
+	}
+	
+	/**
+	 * Adds a data table's array and the code setting its defaults and declared values.
+	 */
+	private static void addDataTable(TypeSpec.Builder registrar, List<CodeBlock> data, ParsedDataTable table, String count, List<String> values) {
+		registrar.addField(FieldSpec.builder(ArrayTypeName.of(table.getTypeName()), table.getName(), Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+				.addJavadoc("Data table indexed by ordinal.\n")
+				.initializer("new $T[$L]", table.getTypeName(), count)
+				.build());
+		if(table.getDefault() != null) {
+			data.add(CodeBlock.builder().addStatement("$T.fill($L, $L)", Arrays.class, table.getName(), table.getDefault()).build());
+		}
+		for(int i = 0; i < values.size(); i++) {
+			if(values.get(i) != null) {
+				data.add(CodeBlock.builder().addStatement("$L[$L] = $L", table.getName(), i, values.get(i)).build());
+			}
+		}
+	}
+	
+	private static String hex(int value) {
+		return String.format("0x%08X", value);
+	}
+	
+	/**
+	 * String literal of arbitrary chars that survives any source encoding: only printable ASCII is written as is, low
+	 * chars as octal escapes, everything else as unicode escapes, which never denote a line break or quote up there.
+	 */
+	private static String charsLiteral(char[] chars) {
+		StringBuilder literal = new StringBuilder(chars.length * 2 + 2).append('"');
+		for(char c : chars) {
+			if(c >= 0x20 && c < 0x7F && c != '"' && c != '\\') {
+				literal.append(c);
+			} else if(c <= 0xFF) {
+				literal.append(String.format("\\%03o", (int) c));
+			} else {
+				literal.append(String.format("\\u%04x", (int) c));
+			}
+		}
+		return literal.append('"').toString();
+	}
+	
+	/**
+	 * Body of a registry helper collecting into a batch, counted into the given phase when metrics are enabled.
+	 */
+	private CodeBlock collect(String kind, String value, CodeBlock idArg, String phase) {
+		CodeBlock.Builder body = CodeBlock.builder()
+				.addStatement("pending$LIds[pending$LCount] = $L", kind, kind, idArg)
+				.addStatement("pending$Ls[pending$LCount++] = $L", kind, kind, value);
+		if(metrics != Metrics.NONE) {
+			body.addStatement("STATS.counts[Stats.$L]++", phase);
+		}
+		return body.build();
+	}
+	
+	/**
+	 * Adds the pending arrays of a batch and the method passing them to its callback. Lazy holders returning null
+	 * leave the arrays short, in which case they are trimmed first.
+	 */
+	private void addBatch(TypeSpec.Builder registrar, TypeName owner, BatchCallback batch, TypeName valueName, String kind, String phase, boolean lazy) {
+		ArrayTypeName idsType = ArrayTypeName.of(identifierName);
+		ArrayTypeName valuesType = ArrayTypeName.of(valueName);
+		registrar.addField(idsType, "pending" + kind + "Ids", Modifier.PRIVATE, Modifier.STATIC)
+				.addField(valuesType, "pending" + kind + "s", Modifier.PRIVATE, Modifier.STATIC)
+				.addField(TypeName.INT, "pending" + kind + "Count", Modifier.PRIVATE, Modifier.STATIC);
+		CodeBlock.Builder body = CodeBlock.builder()
+				.addStatement("$T ids = pending$LIds", idsType, kind)
+				.addStatement("$T values = pending$Ls", valuesType, kind)
+				.addStatement("pending$LIds = null", kind)
+				.addStatement("pending$Ls = null", kind);
+		if(lazy) {
+			body.beginControlFlow("if(pending$LCount != ids.length)", kind)
+					.addStatement("ids = $T.copyOf(ids, pending$LCount)", Arrays.class, kind)
+					.addStatement("values = $T.copyOf(values, pending$LCount)", Arrays.class, kind)
+					.endControlFlow();
+		}
+		CodeBlock call = batch.lists
+				? CodeBlock.of("$1T.$2L($3T.unmodifiableList($4T.asList(ids)), $3T.unmodifiableList($4T.asList(values)))", owner, batch.name, Collections.class, Arrays.class)
+				: CodeBlock.of("$T.$L(ids, values)", owner, batch.name);
+		if(metrics == Metrics.NONE) {
+			body.addStatement("$L", call);
+		} else {
+			body.addStatement("long start = System.nanoTime()")
+					.addStatement("$L", call)
+					.addStatement("STATS.batch(Stats.$L, System.nanoTime() - start)", phase);
+		}
+		registrar.addMethod(MethodSpec.methodBuilder("flush" + kind + "s").returns(TypeName.VOID).addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+				.addCode(body.build()).build());
+	}
+	
+	/**
+	 * Body of a block item factory, counting construction towards the block item phase when metrics are enabled.
+	 */
+	private CodeBlock create(CodeBlock blockItem) {
+		if(metrics == Metrics.NONE) {
+			return CodeBlock.builder().addStatement("return $L", blockItem).build();
+		}
+		return CodeBlock.builder()
+				.addStatement("long start = System.nanoTime()")
+				.addStatement("$T item = $L", itemName, blockItem)
+				.addStatement("STATS.nanos[Stats.BLOCK_ITEMS] += System.nanoTime() - start")
+				.addStatement("return item")
+				.build();
+	}
+	
+	/**
+	 * Adds the <code>Stats</code> and <code>StatsMBean</code> types, the <code>STATS</code> instance and its accessors.
+	 * Phases are blocks, auto block items (including constructing them) and items; whatever <code>register()</code>
+	 * spends outside them, mostly initializing the owner class, shows up as other time. Stats are recorded without
+	 * synchronization by the registering thread and published by <code>finish</code>, so readers see complete numbers
+	 * once <code>register()</code> has returned. An item batch call is timed as a whole under items, including the
+	 * automatic block items passed to it.
+	 */
+	private void addStats(TypeSpec.Builder registrar, String registrarName, boolean blockBatch, boolean itemBatch) {
+		ClassName stats = ClassName.get("", "Stats");
+		String[][] getters = {
+				{"getTotalNanos", "long", "totalNanos", "Wall time of <code>register()</code>."},
+				{"getBlockNanos", "long", "nanos[BLOCKS]", "Time spent registering blocks."},
+				{"getBlockItemNanos", "long", "nanos[BLOCK_ITEMS]", itemBatch
+						? "Time spent constructing automatic block items. Registering them is part of the item batch, timed under items."
+						: "Time spent constructing and registering automatic block items."},
+				{"getItemNanos", "long", "nanos[ITEMS]", itemBatch
+						? "Time spent in the item batch, which also registers the automatic block items."
+						: "Time spent registering items."},
+				{"getOtherNanos", "long", "totalNanos - nanos[BLOCKS] - nanos[BLOCK_ITEMS] - nanos[ITEMS]", "Time outside the phases, mostly initializing the owner class."},
+				{"getCallbackNanos", "long", "callbackNanos", "Time spent inside the container's registry callbacks."},
+				{"getRegistryNanos", "long", "registryNanos", "Time spent in <code>Registry.register</code> for entries without a registry callback."},
+				{"getSlowestCallbackNanos", "long", "slowestNanos", "Duration of the slowest single registry callback."},
+				{"getSlowestCallbackId", "String", "slowestId", "Id registered by the slowest registry callback."},
+				{"getBlockCount", "int", "counts[BLOCKS]", null},
+				{"getBlockItemCount", "int", "counts[BLOCK_ITEMS]", null},
+				{"getItemCount", "int", "counts[ITEMS]", null},
+				{"isComplete", "boolean", "complete", "Whether <code>register()</code> has finished."}
+		};
+		TypeSpec.Builder mbean = TypeSpec.interfaceBuilder("StatsMBean").addModifiers(Modifier.PUBLIC);
+		TypeSpec.Builder impl = TypeSpec.classBuilder(stats).addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+				.addSuperinterface(ClassName.get("", "StatsMBean"))
+				.addField(FieldSpec.builder(TypeName.INT, "BLOCKS", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL).initializer("0").build())
+				.addField(FieldSpec.builder(TypeName.INT, "BLOCK_ITEMS", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL).initializer("1").build())
+				.addField(FieldSpec.builder(TypeName.INT, "ITEMS", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL).initializer("2").build())
+				.addField(FieldSpec.builder(long[].class, "nanos", Modifier.PRIVATE, Modifier.FINAL).initializer("new long[3]").build())
+				.addField(FieldSpec.builder(int[].class, "counts", Modifier.PRIVATE, Modifier.FINAL).initializer("new int[3]").build())
+				.addField(TypeName.LONG, "totalNanos", Modifier.PRIVATE)
+				.addField(TypeName.LONG, "callbackNanos", Modifier.PRIVATE)
+				.addField(TypeName.LONG, "registryNanos", Modifier.PRIVATE)
+				.addField(TypeName.LONG, "slowestNanos", Modifier.PRIVATE)
+				.addField(TypeName.get(String.class), "slowestId", Modifier.PRIVATE)
+				.addField(TypeName.BOOLEAN, "complete", Modifier.PRIVATE)
+				.addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build())
+				.addMethod(MethodSpec.methodBuilder("callback").returns(TypeName.VOID).addModifiers(Modifier.PRIVATE)
+						.addParameter(TypeName.INT, "phase")
+						.addParameter(TypeName.LONG, "time")
+						.addParameter(Object.class, "id")
+						.addStatement("nanos[phase] += time")
+						.addStatement("counts[phase]++")
+						.addStatement("callbackNanos += time")
+						.beginControlFlow("if(time > slowestNanos)")
+						.addStatement("slowestNanos = time")
+						.addStatement("slowestId = $T.valueOf(id)", String.class)
+						.endControlFlow()
+						.build())
+				.addMethod(MethodSpec.methodBuilder("registry").returns(TypeName.VOID).addModifiers(Modifier.PRIVATE)
+						.addParameter(TypeName.INT, "phase")
+						.addParameter(TypeName.LONG, "time")
+						.addStatement("nanos[phase] += time")
+						.addStatement("counts[phase]++")
+						.addStatement("registryNanos += time")
+						.build())
+				.addMethod(MethodSpec.methodBuilder("finish").returns(TypeName.VOID).addModifiers(Modifier.PRIVATE, Modifier.SYNCHRONIZED)
+						.addParameter(TypeName.LONG, "time")
+						.addStatement("totalNanos = time")
+						.addStatement("complete = true")
+						.build());
+		if(blockBatch || itemBatch) {
+			impl.addMethod(MethodSpec.methodBuilder("batch").returns(TypeName.VOID).addModifiers(Modifier.PRIVATE)
+					.addParameter(TypeName.INT, "phase")
+					.addParameter(TypeName.LONG, "time")
+					.addStatement("nanos[phase] += time")
+					.addStatement("callbackNanos += time")
+					.beginControlFlow("if(time > slowestNanos)")
+					.addStatement("slowestNanos = time")
+					.addStatement("slowestId = phase == BLOCKS ? $S : $S", "block batch", "item batch")
+					.endControlFlow()
+					.build());
+		}
+		for(String[] getter : getters) {
+			TypeName type = getter[1].equals("String") ? TypeName.get(String.class) : getter[1].equals("int") ? TypeName.INT : getter[1].equals("long") ? TypeName.LONG : TypeName.BOOLEAN;
+			MethodSpec.Builder abstractGetter = MethodSpec.methodBuilder(getter[0]).returns(type).addModifiers(Modifier.PUBLIC, Modifier.ABSTRACT);
+			if(getter[3] != null) {
+				abstractGetter.addJavadoc(getter[3] + "\n");
+			}
+			mbean.addMethod(abstractGetter.build());
+			impl.addMethod(MethodSpec.methodBuilder(getter[0]).returns(type).addModifiers(Modifier.PUBLIC, Modifier.SYNCHRONIZED)
+					.addAnnotation(Override.class)
+					.addStatement("return $L", getter[2])
+					.build());
+		}
+		impl.addMethod(MethodSpec.methodBuilder("toString").returns(String.class).addModifiers(Modifier.PUBLIC, Modifier.SYNCHRONIZED)
+				.addAnnotation(Override.class)
+				.addStatement("return $T.format($S, totalNanos / 1e6, counts[BLOCKS], nanos[BLOCKS] / 1e6, counts[BLOCK_ITEMS], nanos[BLOCK_ITEMS] / 1e6, counts[ITEMS], nanos[ITEMS] / 1e6, registryNanos / 1e6, callbackNanos / 1e6, slowestId, slowestNanos / 1e6)",
+						String.class, "register() took %.2f ms: %d blocks %.2f ms, %d block items %.2f ms, %d items %.2f ms; registry %.2f ms, callbacks %.2f ms, slowest %s %.3f ms")
+				.build());
+		
+		registrar.addType(mbean.build())
+				.addType(impl.build())
+				.addField(FieldSpec.builder(stats, "STATS", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL).initializer("new $T()", stats).build())
+				.addMethod(MethodSpec.methodBuilder("getStats").returns(stats).addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+						.addJavadoc("Registration metrics, complete once {@link #register()} has returned.\n")
+						.addStatement("return STATS")
+						.build())
+				.addMethod(MethodSpec.methodBuilder("registerMBean").returns(TypeName.VOID).addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+						.addJavadoc("Registers {@link #getStats()} with the platform MBean server.\n")
+						.addException(JMException.class)
+						.addStatement("$T.getPlatformMBeanServer().registerMBean(STATS, new $T($S + $L.class.getName()))", ManagementFactory.class, ObjectName.class, MBEAN_DOMAIN + ":type=Registrar,name=", registrarName)
+						.build());
+	}
+	
+	/**
+	 * Builds the module-level registrar calling each container's registrar once, in the given order. Registrars and
+	 * their owners are only loaded and initialized as the aggregate reaches them.
+	 */
+	public TypeSpec generateAggregate(String aggregateName, List<ClassName> registrars) {
+		CodeBlock.Builder calls = CodeBlock.builder()
+				.beginControlFlow("if(registered)")
+				.addStatement("return")
+				.endControlFlow()
+				.addStatement("registered = true");
+		for(ClassName registrar : registrars) {
+			calls.addStatement("$T.register()", registrar);
+		}
+		return TypeSpec.classBuilder(aggregateName)
+				.addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+				.addField(TypeName.BOOLEAN, "registered", Modifier.PRIVATE, Modifier.STATIC)
+				.addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build())
+				.addMethod(MethodSpec.methodBuilder("register").returns(TypeName.VOID).addModifiers(Modifier.PUBLIC, Modifier.STATIC, Modifier.SYNCHRONIZED)
+						.addCode(calls.build()).build())
+				.build();
+	}
+	
+	private static FieldSpec arrayField(TypeName type, String name, CodeBlock elements) {
+		return FieldSpec.builder(type, name, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+				.initializer("{\n$>$L\n$<}", elements)
+				.build();
+	}
+	
+	/**
+	 * Per-registrar generation state.
+	 */
+	private class Generation {
+		private final ParsedRegistryContainer rc;
+		private final IdentifierConstants constants;
+		private final Map<String, String> settingsByGroup = new LinkedHashMap<>();
+		private final Map<String, CodeBlock> sharedSettings = new LinkedHashMap<>();
+		private final String blockItemRegister = metrics == Metrics.NONE ? "registerItem" : "registerBlockItem";
+		
+		private Generation(ParsedRegistryContainer rc, IdentifierConstants constants) {
+			this.rc = rc;
+			this.constants = constants;
+		}
+		
+		/**
+		 * Expression for an entry's value, going through the registrar's accessor for lazy entries.
+		 */
+		private CodeBlock value(EntryHolder holder, String name) {
+			return holder.isLazy() ? CodeBlock.of("$L()", name) : holder.create(rc.getOwnerName(), name);
+		}
+		
+		private CodeBlock id(String id) {
+			return constants != null ? constants.ref(id) : CodeBlock.of("$S", id);
+		}
+		
+		private CodeBlock blockItem(CodeBlock block, ParsedFieldRef group) {
+			if(constants != null) {
+				return CodeBlock.of("createBlockItem($L, $L)", block, settings(group));
+			} else if(group != null) {
+				return CodeBlock.of("createBlockItem($L, $T.$L)", block, group.getTargetType(), group.getTargetName());
+			} else {
+				return CodeBlock.of("createBlockItem($L)", block);
+			}
+		}
+		
+		/**
+		 * Name of the shared settings field for a block item group, creating it on first use.
+		 */
+		private String settings(ParsedFieldRef group) {
+			String key = group == null ? "" : group.getTargetType().toString() + "." + group.getTargetName();
+			String field = settingsByGroup.get(key);
+			if(field == null) {
+				field = "BLOCK_ITEM_SETTINGS_" + settingsByGroup.size();
+				settingsByGroup.put(key, field);
+				if(group == null) {
+					sharedSettings.put(field, CodeBlock.of("new $T()", itemSettingsName));
+				} else {
+					sharedSettings.put(field, CodeBlock.of("new $T().group($T.$L)", itemSettingsName, group.getTargetType(), group.getTargetName()));
+				}
+			}
+			return field;
+		}
+		
+		/**
+		 * @param separateBlockItems whether automatic block items are left to a separate <code>registerBlockItems()</code>
+		 */
+		private TypeSpec blockShard(String name, List<ParsedBlock> blocks, boolean separateBlockItems) {
+			CodeBlock.Builder ids = CodeBlock.builder();
+			CodeBlock.Builder values = CodeBlock.builder();
+			CodeBlock.Builder autoItems = CodeBlock.builder();
+			CodeBlock.Builder groups = CodeBlock.builder();
+			CodeBlock.Builder settings = CodeBlock.builder();
+			int autoCount = 0;
+			boolean hasGroups = false;
+			boolean hasLazy = false;
+			for(int i = 0; i < blocks.size(); i++) {
+				ParsedBlock block = blocks.get(i);
+				String sep = i == 0 ? "" : ",\n";
+				ids.add("$L$L", sep, id(block.getId()));
+				values.add("$L$L", sep, value(block.getHolder(), block.getFieldName()));
+				hasLazy |= block.getHolder().isLazy();
+				autoItems.add("$L$L", sep, block.hasAutoBlockItem());
+				ParsedFieldRef group = block.getItemGroup();
+				if(block.hasAutoBlockItem()) {
+					autoCount++;
+					if(group != null) {
+						hasGroups = true;
+					}
+				}
+				if(block.hasAutoBlockItem() && group != null) {
+					groups.add("$L$T.$L", sep, group.getTargetType(), group.getTargetName());
+				} else {
+					groups.add("$Lnull", sep);
+				}
+				settings.add("$L$L", sep, block.hasAutoBlockItem() && constants != null ? settings(group) : "null");
+			}
+			
+			TypeSpec.Builder shard = TypeSpec.classBuilder(name).addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+					.addField(arrayField(ArrayTypeName.of(constants != null ? identifierName : TypeName.get(String.class)), "IDS", ids.build()))
+					.addField(arrayField(ArrayTypeName.of(blockName), "BLOCKS", values.build()));
+			
+			CodeBlock.Builder loop = CodeBlock.builder()
+					.beginControlFlow("for(int i = 0; i < IDS.length; i++)");
+			if(hasLazy) {
+				skipNull(loop, "BLOCKS");
+			}
+			loop.addStatement("registerBlock(BLOCKS[i], IDS[i])");
+			CodeBlock.Builder itemLoop = loop;
+			if(separateBlockItems) {
+				itemLoop = CodeBlock.builder().beginControlFlow("for(int i = 0; i < IDS.length; i++)");
+				if(hasLazy) {
+					skipNull(itemLoop, "BLOCKS");
+				}
+			}
+			if(autoCount > 0 && constants != null) {
+				shard.addField(arrayField(ArrayTypeName.of(itemSettingsName), "SETTINGS", settings.build()));
+				if(autoCount != blocks.size()) {
+					itemLoop.beginControlFlow("if(SETTINGS[i] != null)");
+				}
+				itemLoop.addStatement("$L(createBlockItem(BLOCKS[i], SETTINGS[i]), IDS[i])", blockItemRegister);
+				if(autoCount != blocks.size()) {
+					itemLoop.endControlFlow();
+				}
+			} else if(autoCount > 0) {
+				boolean mixed = autoCount != blocks.size();
+				if(mixed) {
+					shard.addField(arrayField(ArrayTypeName.of(TypeName.BOOLEAN), "BLOCK_ITEMS", autoItems.build()));
+					itemLoop.beginControlFlow("if(BLOCK_ITEMS[i])");
+				}
+				if(hasGroups) {
+					shard.addField(arrayField(ArrayTypeName.of(itemGroupName), "GROUPS", groups.build()));
+					itemLoop.addStatement("$L(GROUPS[i] == null ? createBlockItem(BLOCKS[i]) : createBlockItem(BLOCKS[i], GROUPS[i]), IDS[i])", blockItemRegister);
+				} else {
+					itemLoop.addStatement("$L(createBlockItem(BLOCKS[i]), IDS[i])", blockItemRegister);
+				}
+				if(mixed) {
+					itemLoop.endControlFlow();
+				}
+			}
+			loop.endControlFlow();
+			
+			shard.addMethod(MethodSpec.methodBuilder("register").returns(TypeName.VOID).addModifiers(Modifier.STATIC).addCode(loop.build()).build());
+			if(separateBlockItems && autoCount > 0) {
+				itemLoop.endControlFlow();
+				shard.addMethod(MethodSpec.methodBuilder("registerBlockItems").returns(TypeName.VOID).addModifiers(Modifier.STATIC).addCode(itemLoop.build()).build());
+			}
+			return shard.build();
+		}
+		
+		private TypeSpec itemShard(String name, List<ParsedItem> items) {
+			CodeBlock.Builder ids = CodeBlock.builder();
+			CodeBlock.Builder values = CodeBlock.builder();
+			boolean hasLazy = false;
+			for(int i = 0; i < items.size(); i++) {
+				ParsedItem item = items.get(i);
+				String sep = i == 0 ? "" : ",\n";
+				ids.add("$L$L", sep, id(item.getId()));
+				values.add("$L$L", sep, value(item.getHolder(), item.getFieldName()));
+				hasLazy |= item.getHolder().isLazy();
+			}
+			
+			CodeBlock.Builder loop = CodeBlock.builder()
+					.beginControlFlow("for(int i = 0; i < IDS.length; i++)");
+			if(hasLazy) {
+				skipNull(loop, "ITEMS");
+			}
+			loop.addStatement("registerItem(ITEMS[i], IDS[i])")
+					.endControlFlow();
+			
+			return TypeSpec.classBuilder(name).addModifiers(Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+					.addField(arrayField(ArrayTypeName.of(constants != null ? identifierName : TypeName.get(String.class)), "IDS", ids.build()))
+					.addField(arrayField(ArrayTypeName.of(itemName), "ITEMS", values.build()))
+					.addMethod(MethodSpec.methodBuilder("register").returns(TypeName.VOID).addModifiers(Modifier.STATIC).addCode(loop.build()).build())
+					.build();
+		}
+		
+		/**
+		 * Skips entries whose lazy holder returned null.
+		 */
+		private void skipNull(CodeBlock.Builder loop, String values) {
+			loop.beginControlFlow("if($L[i] == null)", values)
+					.addStatement("continue")
+					.endControlFlow();
+		}
+	}
+}
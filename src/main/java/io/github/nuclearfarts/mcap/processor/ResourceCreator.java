@@ -2,5 +2,5 @@ package io.github.nuclearfarts.mcap.processor;
 
 @FunctionalInterface
 public interface ResourceCreator {
-	void createResource(String pkg, String fileName, String contents);
+	void createResource(String pkg, String fileName, CharSequence contents);
 }
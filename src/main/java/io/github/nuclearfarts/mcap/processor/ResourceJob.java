@@ -0,0 +1,67 @@
+package io.github.nuclearfarts.mcap.processor;
+
+/**
+ * A single resource to render. Holds only plain data, so jobs can be rendered off the compiler thread.
+ */
+public final class ResourceJob {
+	private final ProcessorTemplateType type;
+	private final LoadedTemplate template;
+	private final String modId;
+	private final String id;
+	private final String[] args;
+	private final String field;
+	
+	/**
+	 * @param field simple name of the annotated field the resource belongs to, for error reporting
+	 */
+	public ResourceJob(ProcessorTemplateType type, LoadedTemplate template, String modId, String id, String[] args, String field) {
+		this.type = type;
+		this.template = template;
+		this.modId = modId;
+		this.id = id;
+		this.args = args;
+		this.field = field;
+	}
+	
+	public ProcessorTemplateType getType() {
+		return type;
+	}
+	
+	public String getId() {
+		return id;
+	}
+	
+	public LoadedTemplate getTemplate() {
+		return template;
+	}
+	
+	public String getModId() {
+		return modId;
+	}
+	
+	public String[] getArgs() {
+		return args;
+	}
+	
+	public String getField() {
+		return field;
+	}
+	
+	public String getPackage() {
+		return type.getPackage(modId);
+	}
+	
+	public String getFileName() {
+		return id + ".json";
+	}
+	
+	public void renderTo(StringBuilder out) {
+		template.renderTo(out, modId, id, args);
+	}
+	
+	public String render() {
+		StringBuilder builder = new StringBuilder();
+		renderTo(builder);
+		return builder.toString();
+	}
+}
@@ -0,0 +1,87 @@
+package io.github.nuclearfarts.mcap.processor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * All generated assets of one container, collected into an in-memory zip resource pack as they are created. The pack
+ * and its index are written once, at the end of processing. The index lists every entry with its size, CRC and local
+ * header offset, so tooling can locate entries without reading the zip's central directory.
+ * <p>
+ * The bundle is a tooling artifact written to buildDir, not a replacement for the loose asset files: neither Minecraft
+ * nor Fabric loads a resource pack nested in a mod jar, so the loose files are still generated alongside it.
+ * <p>
+ * Entries are written sorted by path with a fixed timestamp, so the same assets always give the same bytes.
+ */
+public class ResourcePackBundle {
+	public static final String INDEX_HEADER = "mcap-pack-index 1";
+	private static final int PACK_FORMAT = 6;
+	/** Local time, which zips store as is, so the stored date doesn't depend on the time zone. */
+	private static final long ENTRY_TIME = new GregorianCalendar(1980, Calendar.FEBRUARY, 1, 0, 0, 0).getTimeInMillis();
+	
+	private final Map<String, byte[]> entries = new TreeMap<>();
+	private List<String> index;
+	
+	public ResourcePackBundle(String modId) throws IOException {
+		add("", "pack.mcmeta", String.format("{\"pack\": {\"pack_format\": %d, \"description\": \"%s generated assets\"}}", PACK_FORMAT, modId));
+	}
+	
+	public void add(String pkg, String fileName, CharSequence contents) throws IOException {
+		String path = OutputManifest.pathOf(pkg, fileName);
+		if(entries.putIfAbsent(path, contents.toString().getBytes(StandardCharsets.UTF_8)) != null) {
+			throw new ZipException("duplicate entry: " + path);
+		}
+	}
+	
+	public int size() {
+		return entries.size();
+	}
+	
+	public void writeTo(OutputStream out) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+		CRC32 crc = new CRC32();
+		List<String> lines = new ArrayList<>(entries.size());
+		try(ZipOutputStream zip = new ZipOutputStream(bytes, StandardCharsets.UTF_8)) {
+			for(Map.Entry<String, byte[]> e : entries.entrySet()) {
+				byte[] data = e.getValue();
+				crc.reset();
+				crc.update(data, 0, data.length);
+				long offset = bytes.size();
+				ZipEntry entry = new ZipEntry(e.getKey());
+				entry.setTime(ENTRY_TIME);
+				zip.putNextEntry(entry);
+				zip.write(data);
+				zip.closeEntry();
+				lines.add(String.format("%s\t%d\t%08x\t%d", e.getKey(), data.length, crc.getValue(), offset));
+			}
+		}
+		bytes.writeTo(out);
+		index = lines;
+	}
+	
+	/**
+	 * Writes the index of the pack last written by {@link #writeTo}.
+	 */
+	public void writeIndexTo(OutputStream out) throws IOException {
+		if(index == null) {
+			writeTo(new ByteArrayOutputStream());
+		}
+		StringBuilder sb = new StringBuilder(INDEX_HEADER).append('\n');
+		for(String line : index) {
+			sb.append(line).append('\n');
+		}
+		out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,28 @@
+package io.github.nuclearfarts.mcap.processor;
+
+/**
+ * A template together with the args it is rendered with. Interned per container by
+ * {@link ParsedRegistryContainer#bind(LoadedTemplate, String[])}, so entries using the same template and args, which
+ * is most of them, share one instance instead of each holding its own template and arg array references.
+ */
+public final class TemplateBinding {
+	private final LoadedTemplate template;
+	private final String[] args;
+	
+	TemplateBinding(LoadedTemplate template, String[] args) {
+		this.template = template;
+		this.args = args;
+	}
+	
+	public LoadedTemplate getTemplate() {
+		return template;
+	}
+	
+	public String[] getArgs() {
+		return args;
+	}
+	
+	public ResourceJob toJob(ProcessorTemplateType type, String modId, String id, String field) {
+		return new ResourceJob(type, template, modId, id, args, field);
+	}
+}
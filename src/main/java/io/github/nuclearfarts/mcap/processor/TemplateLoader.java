@@ -3,17 +3,72 @@ package io.github.nuclearfarts.mcap.processor;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.stream.Collectors;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Loads templates through a cache that lives as long as the processor class, so warm compiler daemons and
+ * containers sharing a template file only parse it once. File templates are revalidated by mtime and size, a changed
+ * file replacing its entry, and only the most recently used {@link #MAX_CACHED_FILES} files are kept.
+ */
 public class TemplateLoader {
+	private static final Map<String, LoadedTemplate> BUILTINS = new ConcurrentHashMap<>();
+	private static final int MAX_CACHED_FILES = 256;
+	private static final Map<Path, CachedFile> FILES = Collections.synchronizedMap(new LinkedHashMap<Path, CachedFile>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Path, CachedFile> eldest) {
+			return size() > MAX_CACHED_FILES;
+		}
+	});
+	
 	private final Path rootDir;
 	
+	/**
+	 * @param dir directory custom templates are resolved against, or null if none was configured
+	 */
 	public TemplateLoader(Path dir) {
 		rootDir = dir;
 	}
 	
-	public LoadedTemplate load(String modId, String file) throws IOException {
-		Path p = rootDir.resolve(file);
-		return new LoadedTemplate(Files.newBufferedReader(p).lines().collect(Collectors.joining("\n")), modId);
+	public LoadedTemplate load(String file) throws IOException {
+		if(rootDir == null) {
+			throw new IOException("Cannot load template " + file + ", set the mcap.templates or buildDir processor option");
+		}
+		Path p = rootDir.resolve(file).toAbsolutePath().normalize();
+		BasicFileAttributes attrs = Files.readAttributes(p, BasicFileAttributes.class);
+		long mtime = attrs.lastModifiedTime().toMillis();
+		CachedFile cached = FILES.get(p);
+		if(cached != null && cached.mtime == mtime && cached.size == attrs.size()) {
+			return cached.template;
+		}
+		LoadedTemplate template = new LoadedTemplate(LoadedTemplate.readText(Files.newInputStream(p)), p.toString());
+		FILES.put(p, new CachedFile(mtime, attrs.size(), template));
+		return template;
+	}
+	
+	public static LoadedTemplate loadBuiltin(String loc) throws IOException {
+		LoadedTemplate template = BUILTINS.get(loc);
+		if(template == null) {
+			template = LoadedTemplate.loadBuiltin(loc);
+			BUILTINS.put(loc, template);
+		}
+		return template;
+	}
+	
+	private static class CachedFile {
+		private final long mtime;
+		private final long size;
+		private final LoadedTemplate template;
+		
+		private CachedFile(long mtime, long size, LoadedTemplate template) {
+			this.mtime = mtime;
+			this.size = size;
+			this.template = template;
+		}
 	}
 }